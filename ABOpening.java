@@ -2,13 +2,17 @@ package morris;
 
 import java.nio.file.*;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
 
 
 public class ABOpening {
+    private static final int ANALYSIS_CACHE_ENTRIES = 1 << 20;
+
     public static void main(String[] args) {
         // Check command line arguments
-        if (args.length != 3) {
-            System.out.println("Usage: java morris.ABOpening <input_file> <output_file> <depth>");
+        if (args.length < 3 || args.length % 2 == 0) {
+            System.out.println("Usage: java morris.ABOpening <input_file> <output_file> <depth> [--hash-mb <size>] [--cache <file>] [--history <file>] [--multipv <count>] [--telemetry <file|->] [--threads <n>] [--search <full|mtdf|compare>]");
             System.exit(1);
         }
         
@@ -18,12 +22,57 @@ public class ABOpening {
             String outputFile = args[1];
             int depth = Integer.parseInt(args[2]);
             
+            // Optional engine settings
+            long hashMb = 0;
+            String cacheFile = null;
+            String historyFile = null;
+            int multiPv = 1;
+            String telemetryFile = null;
+            int threads = 1;
+            String searchMode = "full";
+            for (int i = 3; i < args.length; i += 2) {
+                if (args[i].equals("--hash-mb")) {
+                    hashMb = Long.parseLong(args[i + 1]);
+                } else if (args[i].equals("--cache")) {
+                    cacheFile = args[i + 1];
+                } else if (args[i].equals("--history")) {
+                    historyFile = args[i + 1];
+                } else if (args[i].equals("--multipv")) {
+                    multiPv = Integer.parseInt(args[i + 1]);
+                } else if (args[i].equals("--telemetry")) {
+                    telemetryFile = args[i + 1];
+                } else if (args[i].equals("--threads")) {
+                    threads = Integer.parseInt(args[i + 1]);
+                } else if (args[i].equals("--search")) {
+                    searchMode = args[i + 1];
+                } else {
+                    System.err.println("Error: Unknown option " + args[i]);
+                    System.exit(1);
+                }
+            }
+            
             // Validate depth
             if (depth < 1) {
                 System.err.println("Error: Depth must be a positive integer");
                 System.exit(1);
             }
             
+            // The parallel search reproduces the plain serial search only
+            // (telemetry would be attached to the serial instance, which does not run)
+            if (threads > 1 && (hashMb > 0 || cacheFile != null || historyFile != null || multiPv > 1
+                    || telemetryFile != null || !searchMode.equals("full"))) {
+                System.err.println("Error: --threads cannot be combined with --hash-mb, --cache, --history, --multipv, --telemetry or --search");
+                System.exit(1);
+            }
+            if (!searchMode.equals("full") && !searchMode.equals("mtdf") && !searchMode.equals("compare")) {
+                System.err.println("Error: --search must be full, mtdf or compare");
+                System.exit(1);
+            }
+            if (!searchMode.equals("full") && (threads > 1 || multiPv > 1)) {
+                System.err.println("Error: --search " + searchMode + " cannot be combined with --threads or --multipv");
+                System.exit(1);
+            }
+            
             // Read initial board position from file
             String boardPosition = readBoardFromFile(inputFile);
             Board initialBoard = new Board(boardPosition);
@@ -35,8 +84,78 @@ public class ABOpening {
             OpeningMoveGenerator generator = new OpeningMoveGenerator();
             AlphaBetaAlgorithm alphaBeta = new AlphaBetaAlgorithm(generator, true); // true = opening phase
             
+            // Optional off-heap transposition table (changes the evaluation count)
+            if (hashMb > 0) {
+                alphaBeta.setTranspositionTable(new TranspositionTable(hashMb));
+            }
+            
+            // Optional game history: repeated positions are scored as draws
+            if (historyFile != null) {
+                readHistoryFromFile(historyFile, alphaBeta);
+            }
+            
+            // Optional persistent analysis cache shared across runs (root and next ply)
+            AnalysisCache analysisCache = null;
+            if (cacheFile != null) {
+                analysisCache = AnalysisCache.open(Paths.get(cacheFile), ANALYSIS_CACHE_ENTRIES);
+                alphaBeta.setAnalysisCache(analysisCache, 2);
+            }
+            
+            // Optional per-iteration statistics as JSON lines ("-" = standard error)
+            PrintStream telemetryOut = null;
+            if (telemetryFile != null) {
+                telemetryOut = telemetryFile.equals("-") ? System.err
+                        : new PrintStream(Files.newOutputStream(Paths.get(telemetryFile)), true);
+                alphaBeta.setTelemetry(new SearchTelemetry(telemetryOut, "alphabeta"));
+            }
+            
+            // Optional allocation and GC report (-Dmorris.allocationReport=true)
+            AllocationReport allocation = AllocationReport.ENABLED ? AllocationReport.start() : null;
+
             // Find best move for White (maximizing player)
-            AlphaBetaAlgorithm.EvaluationResult result = alphaBeta.search(initialBoard, depth, true);
+            // With --multipv the best of the top candidates is reported as usual
+            // The whole move is one Search event around the depth's Iteration events
+            List<AlphaBetaAlgorithm.EvaluationResult> candidates = null;
+            AlphaBetaAlgorithm.EvaluationResult result;
+            long searchNodes;
+            SearchEvents.Search searchEvent = new SearchEvents.Search();
+            searchEvent.begin();
+            if (threads > 1) {
+                // Same board, estimate and evaluation count as the serial search
+                try (ParallelAlphaBeta parallel = new ParallelAlphaBeta(generator, true, false, threads)) {
+                    parallel.setAllocationReport(allocation);
+                    result = parallel.search(initialBoard, depth, true);
+                    searchNodes = parallel.getNodes();
+                }
+            } else if (multiPv > 1) {
+                candidates = alphaBeta.multiPv(initialBoard, depth, multiPv, true);
+                result = candidates.isEmpty() ? new AlphaBetaAlgorithm.EvaluationResult(null, 0) : candidates.get(0);
+                searchNodes = alphaBeta.getNodes();
+            } else if (searchMode.equals("mtdf")) {
+                // Same estimate as the full-window search (the table changes the evaluation count)
+                result = alphaBeta.mtdf(initialBoard, depth, true);
+                searchNodes = alphaBeta.getNodes();
+            } else {
+                result = alphaBeta.search(initialBoard, depth, true);
+                searchNodes = alphaBeta.getNodes();
+            }
+            SearchEvents.endSearch(searchEvent, initialBoard, true, depth, result.getEvaluation(), searchNodes);
+            String allocationReport = allocation != null ? allocation.finish(searchNodes) : null;
+            
+            // With --search compare, MTD(f) runs after the reported full-window search on
+            // a fresh instance with the same table size; its evaluations are not counted
+            String comparison = null;
+            if (searchMode.equals("compare")) {
+                long evaluated = Board.getPositionsEvaluated();
+                AlphaBetaAlgorithm mtdf = new AlphaBetaAlgorithm(generator, true);
+                if (hashMb > 0) {
+                    mtdf.setTranspositionTable(new TranspositionTable(hashMb));
+                }
+                AlphaBetaAlgorithm.EvaluationResult mtdfResult = mtdf.mtdf(initialBoard, depth, true);
+                comparison = "Nodes: full-window " + searchNodes + ", MTD(f) " + mtdf.getNodes() + " ("
+                        + mtdf.getZeroWindowSearches() + " zero-window searches, estimate " + mtdfResult.getEvaluation() + ").";
+                Board.setPositionsEvaluated(evaluated);
+            }
             
             // Check if a valid move was found
             if (result.getBestBoard() == null) {
@@ -47,13 +166,32 @@ public class ABOpening {
             // Output results in exact format required by assignment
             System.out.println("Board Position: " + result.getBestBoard().getPosition());
             System.out.println("Positions evaluated by static estimation: " + Board.getPositionsEvaluated() + ".");
+            if (allocationReport != null) {
+                System.out.println(allocationReport);
+            }
             System.out.println("MINIMAX estimate: " + result.getEvaluation() + ".");
+            if (comparison != null) {
+                System.out.println(comparison);
+            }
+            if (candidates != null) {
+                for (int i = 0; i < candidates.size(); i++) {
+                    System.out.println("Candidate " + (i + 1) + ": " + candidates.get(i).getBestBoard().getPosition()
+                            + " estimate " + candidates.get(i).getEvaluation() + ".");
+                }
+            }
             
             // Write best board position to output file
             writeBoardToFile(outputFile, result.getBestBoard().getPosition());
             
+            if (analysisCache != null) {
+                analysisCache.save();
+            }
+            if (telemetryOut != null && telemetryOut != System.err) {
+                telemetryOut.close();
+            }
+            
         } catch (NumberFormatException e) {
-            System.err.println("Error: Depth must be a valid integer");
+            System.err.println("Error: Depth and numeric options must be valid integers");
             System.exit(1);
         } catch (IOException e) {
             System.err.println("Error reading/writing files: " + e.getMessage());
@@ -77,6 +215,21 @@ public class ABOpening {
         }
     }
     
+    // One "<board> <W|B>" per line, oldest first, giving the side to move in that position
+    private static void readHistoryFromFile(String filename, AlphaBetaAlgorithm alphaBeta) throws IOException {
+        try {
+            for (String line : Files.readAllLines(Paths.get(filename))) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length == 2) {
+                    alphaBeta.addHistoryPosition(new Board(parts[0]), parts[1].equals("W"));
+                }
+            }
+            alphaBeta.setRepetitionDetection(true);
+        } catch (IOException e) {
+            throw new IOException("Cannot read file: " + filename + " (" + e.getMessage() + ")");
+        }
+    }
+ 
     private static void writeBoardToFile(String filename, String boardPosition) throws IOException {
         try {
             Files.writeString(Paths.get(filename), boardPosition);
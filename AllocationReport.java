@@ -0,0 +1,88 @@
+package morris;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bytes allocated and garbage collections during a search, to catch changes
+// that bring garbage back onto the hot path. Allocation is summed over the
+// search threads; GC counts and times are process-wide. The programs print
+// it after the evaluation count when run with -Dmorris.allocationReport=true.
+final class AllocationReport {
+    static final boolean ENABLED = Boolean.getBoolean("morris.allocationReport");
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private final long[] threadIds;
+    private final long startBytes;
+    private final long startGcCount;
+    private final long startGcMillis;
+    private final AtomicLong reportedBytes = new AtomicLong(); // from threads measuring themselves
+
+    private AllocationReport(long[] threadIds) {
+        this.threadIds = threadIds;
+        this.startBytes = allocatedBytes(threadIds);
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        this.startGcCount = count;
+        this.startGcMillis = millis;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+
+    // Measures the given threads, or the calling thread when none are given
+    static AllocationReport start(long... threadIds) {
+        return new AllocationReport(threadIds.length > 0 ? threadIds : new long[] { Thread.currentThread().getId() });
+    }
+
+    // Allocation of the calling thread so far; -1 when the JVM cannot measure it
+    static long currentThreadAllocatedBytes() {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    // For worker threads that measure themselves (pool threads may be gone by the end)
+    void addBytes(long bytes) {
+        reportedBytes.addAndGet(bytes);
+    }
+
+    private static long allocatedBytes(long[] threadIds) {
+        if (THREADS == null) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : THREADS.getThreadAllocatedBytes(threadIds)) {
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+
+    String finish(long nodes) {
+        long gcCount = -startGcCount;
+        long gcMillis = -startGcMillis;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        String gc = "GC: " + gcCount + " collections, " + gcMillis + " ms.";
+        if (THREADS == null) {
+            return "Allocated: not measurable on this JVM, " + gc;
+        }
+        long bytes = allocatedBytes(threadIds) - startBytes + reportedBytes.get();
+        return String.format("Allocated: %d bytes (%.1f bytes/node), %s",
+                bytes, nodes > 0 ? (double) bytes / nodes : 0.0, gc);
+    }
+}
@@ -1,11 +1,47 @@
 package morris;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class AlphaBetaAlgorithm {
     private final MoveGenerator moveGenerator;
-    private final boolean isOpeningPhase;
-    private final boolean useImprovedEvaluation;
+    private final Evaluator evaluator;
+
+    // Principal variation, preallocated and reused between searches
+    private final PrincipalVariation pvTable = new PrincipalVariation();
+
+    // Optional transposition table (null = plain alpha-beta, as required for graded output)
+    private TranspositionTable transpositionTable = null;
+    private int bestMoveIndex; // generator index of the best move of the node just searched
+
+    // Optional persistent cache consulted at plies below analysisPlies
+    private AnalysisCache analysisCache = null;
+    private int analysisPlies = 0;
+    private long analysisNamespace = 0; // keeps results of different generator/evaluator pairs apart
+
+    // Nodes visited since the last resetNodes() (every call of the recursion)
+    private long nodes = 0;
+    private long evaluations = 0; // leaf evaluations of this instance, same reset
+    private long zeroWindowSearches = 0; // root searches made by mtdf(), same reset
+
+    // Optional cooperative stop: the flag is checked at every node, the deadline every 1024 nodes.
+    // The deadline may be moved by another thread while searching (ponder hit).
+    private AtomicBoolean stopFlag = null;
+    private volatile long deadlineNanos = Long.MAX_VALUE;
+
+    // Root moves (generator indices) skipped by the current multi-PV search, null otherwise
+    private BitSet excludedRootMoves = null;
+
+    // Optional per-iteration statistics (null = off)
+    private SearchTelemetry telemetry = null;
+
+    // Optional repetition detection: keys of the game history followed by the current search path
+    public static final int DRAW_SCORE = 0;
+    private boolean detectRepetitions = false;
+    private long[] pathKeys = new long[64];
+    private int historyLength = 0;
+    // Repetition draws scored so far; a subtree that scored one depends on the path and is not stored
+    private long repetitionDraws = 0;
 
     // Result class
     public static class EvaluationResult {
@@ -22,27 +58,332 @@ public class AlphaBetaAlgorithm {
     }
 
     public AlphaBetaAlgorithm(MoveGenerator generator, boolean isOpening) {
-        this.moveGenerator = generator;
-        this.isOpeningPhase = isOpening;
-        this.useImprovedEvaluation = false;
+        this(generator, Evaluator.forPhase(isOpening, false));
     }
 
     //Part 4 (Standard Evaluation)
     public AlphaBetaAlgorithm(MoveGenerator generator, boolean isOpening, boolean improved) {
+        this(generator, Evaluator.forPhase(isOpening, improved));
+    }
+
+    public AlphaBetaAlgorithm(MoveGenerator generator, Evaluator evaluator) {
         this.moveGenerator = generator;
-        this.isOpeningPhase = isOpening;
-        this.useImprovedEvaluation = improved;
+        this.evaluator = evaluator;
+    }
+
+    // With a table the best board and score stay the same, but positionsEvaluated drops
+    public void setTranspositionTable(TranspositionTable table) {
+        this.transpositionTable = table;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    // A position that already occurred on the path (or in the game history) scores as a draw
+    public void setRepetitionDetection(boolean detect) {
+        this.detectRepetitions = detect;
+    }
+
+    // Positions played before the root, oldest first; also enables repetition detection
+    public void addHistoryPosition(Board board, boolean whiteToMove) {
+        ensurePathCapacity(historyLength + 1);
+        pathKeys[historyLength++] = TranspositionTable.key(board, whiteToMove);
+        detectRepetitions = true;
+    }
+
+    public void clearGameHistory() {
+        historyLength = 0;
+    }
+
+    private void ensurePathCapacity(int size) {
+        if (size > pathKeys.length) {
+            pathKeys = Arrays.copyOf(pathKeys, Math.max(size, pathKeys.length * 2));
+        }
+    }
+
+    // Scans back until the piece count changes: placements and removals are irreversible
+    private boolean isRepetition(long key, int end) {
+        int pieces = Long.bitCount(key & TranspositionTable.POSITION_MASK);
+        for (int i = end - 1; i >= 0; i--) {
+            long previous = pathKeys[i];
+            if (previous == key) {
+                return true;
+            }
+            if (Long.bitCount(previous & TranspositionTable.POSITION_MASK) != pieces) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Leaf evaluations of this instance only, unlike the process-wide Board counter
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    public long getZeroWindowSearches() {
+        return zeroWindowSearches;
+    }
+
+    public void resetNodes() {
+        nodes = 0;
+        evaluations = 0;
+        zeroWindowSearches = 0;
+    }
+
+    // Searches throw SearchCancelledException once the flag is set (null = never)
+    public void setStopFlag(AtomicBoolean flag) {
+        this.stopFlag = flag;
+    }
+
+    // Searches throw SearchCancelledException after this System.nanoTime() value;
+    // safe to call from another thread while a search is running
+    public void setDeadline(long nanoTime) {
+        this.deadlineNanos = nanoTime;
+    }
+
+    public void clearDeadline() {
+        this.deadlineNanos = Long.MAX_VALUE;
+    }
+
+    public void setTelemetry(SearchTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    public void setAnalysisCache(AnalysisCache cache, int plies) {
+        this.analysisCache = cache;
+        this.analysisPlies = plies;
+        String pair = moveGenerator.getClass().getName() + "/" + evaluator.getClass().getName();
+        this.analysisNamespace = (long) (pair.hashCode() & 0x1FFFFF) << 43;
     }
     
     public EvaluationResult search(Board board, int depth, boolean isMaximizing) {
         return alphaBeta(board, depth, Integer.MIN_VALUE, Integer.MAX_VALUE, isMaximizing);
     }
-   
+
+    // Root entry point: the only place a result object is created
     public EvaluationResult alphaBeta(Board board, int depth, int alpha, int beta, boolean isMaximizing) {
+        if (transpositionTable != null) {
+            transpositionTable.newSearch();
+        }
+        return searchRoot(board, depth, alpha, beta, isMaximizing);
+    }
+
+    private EvaluationResult searchRoot(Board board, int depth, int alpha, int beta, boolean isMaximizing) {
+        SearchEvents.Iteration event = new SearchEvents.Iteration();
+        event.begin();
+        long startNodes = nodes;
+        EvaluationResult result = searchWindow(board, depth, alpha, beta, isMaximizing);
+        endIteration(event, board, depth, result.getEvaluation(), startNodes);
+        return result;
+    }
+
+    // One root search with telemetry but no Iteration event, so that mtdf() can
+    // report a depth once with its converged score instead of every bound
+    private EvaluationResult searchWindow(Board board, int depth, int alpha, int beta, boolean isMaximizing) {
+        pvTable.reset(depth);
+        ensurePathCapacity(historyLength + depth + 1);
+        if (telemetry != null) {
+            telemetry.begin(nodes, evaluations, transpositionTable);
+        }
+        int evaluation = alphaBeta(board, depth, 0, alpha, beta, isMaximizing);
+        if (telemetry != null) {
+            telemetry.end(board, depth, evaluation, nodes, evaluations, transpositionTable);
+        }
+        Board bestBoard = pvTable.length(0) > 0 ? pvTable.move(0, 0) : board;
+        return new EvaluationResult(bestBoard, evaluation);
+    }
+
+    private void endIteration(SearchEvents.Iteration event, Board board, int depth, int score, long startNodes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.board = board.getPosition();
+            event.phase = SearchEvents.phase(moveGenerator);
+            event.depth = depth;
+            event.score = score;
+            event.nodes = nodes - startNodes;
+            event.commit();
+        }
+    }
+
+    // Value of a subtree for a parallel driver: the node is searched exactly as an
+    // inner node with this window would be, without a result object or root events
+    int searchSubtree(Board board, int depth, int alpha, int beta, boolean isMaximizing) {
+        pvTable.reset(depth);
+        ensurePathCapacity(historyLength + depth + 1);
+        return alphaBeta(board, depth, 0, alpha, beta, isMaximizing);
+    }
+
+    // Best count root moves with exact scores, best first. Every depth of an
+    // iterative-deepening loop searches the root count times, each time excluding
+    // the moves already reported at that depth. All searches share one
+    // transposition table (a 16 MB one if none is set) for scores and ordering.
+    public List<EvaluationResult> multiPv(Board board, int depth, int count, boolean isMaximizing) {
+        TranspositionTable sharedTable = transpositionTable;
+        if (transpositionTable == null) {
+            transpositionTable = new TranspositionTable(16);
+        }
+        transpositionTable.newSearch();
+
+        List<EvaluationResult> results = new ArrayList<>();
+        excludedRootMoves = new BitSet();
+        try {
+            for (int iteration = 1; iteration <= depth; iteration++) {
+                results.clear();
+                excludedRootMoves.clear();
+                for (int pv = 0; pv < count; pv++) {
+                    EvaluationResult result = searchRoot(board, iteration, Integer.MIN_VALUE, Integer.MAX_VALUE, isMaximizing);
+                    if (pvTable.length(0) == 0) {
+                        break; // no root moves left
+                    }
+                    results.add(result);
+                    excludedRootMoves.set(bestMoveIndex);
+                }
+            }
+        } finally {
+            excludedRootMoves = null;
+            transpositionTable = sharedTable;
+        }
+        return results;
+    }
+
+    // MTD(f): the same score as search(), found by iterative deepening where each
+    // depth is a series of zero-window searches converging from the previous
+    // depth's score. The coarse integer estimates (mostly multiples of 1000 in
+    // the midgame) need few steps, and every re-search is mostly answered from
+    // the transposition table (a 16 MB one if none is set). The best move may
+    // differ from search() between moves of equal score.
+    public EvaluationResult mtdf(Board board, int depth, boolean isMaximizing) {
+        TranspositionTable sharedTable = transpositionTable;
+        if (transpositionTable == null) {
+            transpositionTable = new TranspositionTable(16);
+        }
+        transpositionTable.newSearch();
+
+        try {
+            EvaluationResult result = null;
+            int guess = 0;
+            for (int iteration = 1; iteration <= depth; iteration++) {
+                result = mtdfIteration(board, iteration, guess, isMaximizing);
+                guess = result.getEvaluation();
+            }
+            return result;
+        } finally {
+            transpositionTable = sharedTable;
+        }
+    }
+
+    private EvaluationResult mtdfIteration(Board board, int depth, int guess, boolean isMaximizing) {
+        int lower = Integer.MIN_VALUE;
+        int upper = Integer.MAX_VALUE;
+        int value = guess;
+        Board bestBoard = null;
+        SearchEvents.Iteration event = new SearchEvents.Iteration();
+        event.begin();
+        long startNodes = nodes;
+        while (lower < upper) {
+            int beta = value == lower ? value + 1 : value;
+            EvaluationResult result = searchWindow(board, depth, beta - 1, beta, isMaximizing);
+            zeroWindowSearches++;
+            value = result.getEvaluation();
+            // The root side's move is only proven by a search that succeeded for it
+            if (value < beta) {
+                upper = value;
+                if (!isMaximizing) {
+                    bestBoard = result.getBestBoard();
+                }
+            } else {
+                lower = value;
+                if (isMaximizing) {
+                    bestBoard = result.getBestBoard();
+                }
+            }
+            if (bestBoard == null) {
+                bestBoard = result.getBestBoard(); // fallback until such a search
+            }
+        }
+        endIteration(event, board, depth, value, startNodes);
+        return new EvaluationResult(bestBoard, value);
+    }
+
+    // Expected line of play from the last search, starting with the best move
+    public List<Board> getPrincipalVariation() {
+        return pvTable.line();
+    }
+   
+    private int alphaBeta(Board board, int depth, int ply, int alpha, int beta, boolean isMaximizing) {
+        pvTable.clear(ply);
+        nodes++;
+        if (stopFlag != null && stopFlag.get()) {
+            throw new SearchCancelledException();
+        }
+        if ((nodes & 1023) == 0 && deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos > 0) {
+            throw new SearchCancelledException();
+        }
+
+        // Repeated position: a draw, no need to search it again
+        if (detectRepetitions) {
+            long pathKey = TranspositionTable.key(board, isMaximizing);
+            if (ply > 0 && isRepetition(pathKey, historyLength + ply)) {
+                repetitionDraws++;
+                return DRAW_SCORE;
+            }
+            pathKeys[historyLength + ply] = pathKey;
+        }
+
         // Base case: reached maximum depth or leaf node
         if (depth == 0) {
-            int evaluation = evaluateBoard(board);
-            return new EvaluationResult(board, evaluation);
+            return evaluateBoard(board);
+        }
+
+        // Transposition table: cut off on a deep enough entry, otherwise use its move first
+        long key = 0;
+        int firstMove = -1;
+        if (transpositionTable != null) {
+            key = TranspositionTable.key(board, isMaximizing);
+            if (transpositionTable.probe(key)) {
+                firstMove = transpositionTable.getProbedMove();
+                if (ply > 0 && transpositionTable.getProbedDepth() >= depth) {
+                    int score = transpositionTable.getProbedScore();
+                    int bound = transpositionTable.getProbedBound();
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER && score >= beta)
+                            || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+        }
+        
+        // Persistent analysis cache at the root and upper plies. Its keys carry no game
+        // history, so it is neither read nor written while repetitions are detected.
+        long analysisKey = 0;
+        AnalysisCache.Entry analysis = null;
+        boolean restrictedRoot = ply == 0 && excludedRootMoves != null;
+        boolean useAnalysis = analysisCache != null && ply < analysisPlies && !restrictedRoot && !detectRepetitions;
+        if (useAnalysis) {
+            analysisKey = TranspositionTable.key(board, isMaximizing) | analysisNamespace;
+            analysis = analysisCache.probe(analysisKey);
+            if (analysis != null) {
+                if (firstMove < 0) {
+                    firstMove = analysis.getMove();
+                }
+                int score = analysis.getScore();
+                int bound = analysis.getBound();
+                boolean usable = analysis.getDepth() >= depth && (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha));
+                if (!usable) {
+                    analysis = null;
+                } else if (ply > 0) {
+                    return score;
+                }
+            }
         }
         
         // Generate all possible moves for current player
@@ -50,28 +391,69 @@ public class AlphaBetaAlgorithm {
         
         // If no moves available, evaluate current position
         if (possibleMoves.isEmpty()) {
-            int evaluation = evaluateBoard(board);
-            return new EvaluationResult(board, evaluation);
+            return evaluateBoard(board);
+        }
+        if (firstMove >= possibleMoves.size()) {
+            firstMove = -1;
+        }
+
+        // Root answered from the analysis cache: only the best move has to be recovered
+        if (analysis != null && analysis.getMove() < possibleMoves.size()) {
+            pvTable.clear(ply + 1);
+            pvTable.update(ply, possibleMoves.get(analysis.getMove()));
+            bestMoveIndex = analysis.getMove();
+            return analysis.getScore();
         }
         
-        // Choose between MAX and MIN logic with pruning
+        long drawsBefore = repetitionDraws;
+        int value;
         if (isMaximizing) {
-            return maxValueAB(possibleMoves, depth, alpha, beta);
+            // Choose between MAX and MIN logic with pruning
+            value = maxValueAB(possibleMoves, depth, ply, alpha, beta, firstMove);
         } else {
-            return minValueAB(possibleMoves, depth, alpha, beta);
+            value = minValueAB(possibleMoves, depth, ply, alpha, beta, firstMove);
+        }
+
+        // A root searched with excluded moves has no true score for the position, and
+        // neither has a subtree whose value may come from a repetition draw
+        boolean storeTable = transpositionTable != null && !restrictedRoot && repetitionDraws == drawsBefore;
+        if (storeTable || useAnalysis) {
+            int bound = value <= alpha ? TranspositionTable.UPPER
+                    : value >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            if (storeTable) {
+                transpositionTable.store(key, depth, bound, value, bestMoveIndex);
+            }
+            if (useAnalysis) {
+                analysisCache.store(analysisKey, depth, bound, value, bestMoveIndex);
+            }
         }
+        return value;
     }
 
-    private EvaluationResult maxValueAB(List<Board> moves, int depth, int alpha, int beta) {
+    // k-th move to search: firstMove (if any) comes first, the rest keep generator order
+    private static int moveAt(int k, int firstMove) {
+        if (firstMove < 0) {
+            return k;
+        }
+        return k == 0 ? firstMove : (k <= firstMove ? k - 1 : k);
+    }
+
+    private int maxValueAB(List<Board> moves, int depth, int ply, int alpha, int beta, int firstMove) {
         int bestValue = Integer.MIN_VALUE;
-        Board bestBoard = null;
+        int bestIndex = 0;
         
-        for (Board move : moves) {
-            EvaluationResult result = alphaBeta(move, depth - 1, alpha, beta, false);
+        for (int k = 0; k < moves.size(); k++) {
+            int i = moveAt(k, firstMove);
+            if (ply == 0 && excludedRootMoves != null && excludedRootMoves.get(i)) {
+                continue; // already reported by multi-PV
+            }
+            Board move = moves.get(i);
+            int value = alphaBeta(move, depth - 1, ply + 1, alpha, beta, false);
             
-            if (result.getEvaluation() > bestValue) {
-                bestValue = result.getEvaluation();
-                bestBoard = move;
+            if (value > bestValue) {
+                bestValue = value;
+                bestIndex = i;
+                pvTable.update(ply, move);
             }
             
             // Update alpha (best value MAX can guarantee)
@@ -79,23 +461,33 @@ public class AlphaBetaAlgorithm {
             
             // Beta cut-off: if current value >= beta, MIN player won't choose this path
             if (bestValue >= beta) {
+                if (telemetry != null) {
+                    telemetry.cutoff(k == 0);
+                }
                 break; // Prune remaining branches
             }
         }
         
-        return new EvaluationResult(bestBoard, bestValue);
+        bestMoveIndex = bestIndex;
+        return bestValue;
     }
     
-    private EvaluationResult minValueAB(List<Board> moves, int depth, int alpha, int beta) {
+    private int minValueAB(List<Board> moves, int depth, int ply, int alpha, int beta, int firstMove) {
         int bestValue = Integer.MAX_VALUE;
-        Board bestBoard = null;
+        int bestIndex = 0;
         
-        for (Board move : moves) {
-            EvaluationResult result = alphaBeta(move, depth - 1, alpha, beta, true);
+        for (int k = 0; k < moves.size(); k++) {
+            int i = moveAt(k, firstMove);
+            if (ply == 0 && excludedRootMoves != null && excludedRootMoves.get(i)) {
+                continue; // already reported by multi-PV
+            }
+            Board move = moves.get(i);
+            int value = alphaBeta(move, depth - 1, ply + 1, alpha, beta, true);
             
-            if (result.getEvaluation() < bestValue) {
-                bestValue = result.getEvaluation();
-                bestBoard = move;
+            if (value < bestValue) {
+                bestValue = value;
+                bestIndex = i;
+                pvTable.update(ply, move);
             }
             
             // Update beta (best value MIN can guarantee)
@@ -103,21 +495,20 @@ public class AlphaBetaAlgorithm {
             
             // Alpha cut-off: if current value <= alpha, MAX player won't choose this path
             if (bestValue <= alpha) {
+                if (telemetry != null) {
+                    telemetry.cutoff(k == 0);
+                }
                 break; // Prune remaining branches
             }
         }
         
-        return new EvaluationResult(bestBoard, bestValue);
+        bestMoveIndex = bestIndex;
+        return bestValue;
     }
-    
+
     private int evaluateBoard(Board board) {
-        if (useImprovedEvaluation) {
-            return Board.staticEstimationImproved(board);
-        } else if (isOpeningPhase) {
-            return Board.staticEstimationOpening(board);
-        } else {
-            return Board.staticEstimationMidgameEndgame(board);
-        }
+        evaluations++;
+        return evaluator.evaluate(board);
     }
   
     public static void main(String[] args) {
@@ -133,7 +524,7 @@ public class AlphaBetaAlgorithm {
         Board.resetPositionsEvaluated();
         MinimaxAlgorithm minimax = new MinimaxAlgorithm(generator, true);
         MinimaxAlgorithm.EvaluationResult minimaxResult = minimax.minimax(testBoard, 3, true);
-        int minimaxEvaluations = Board.getPositionsEvaluated();
+        long minimaxEvaluations = Board.getPositionsEvaluated();
         
         System.out.println("MINIMAX - Best move: " + minimaxResult.getBestBoard().getPosition());
         System.out.println("MINIMAX - Evaluation: " + minimaxResult.getEvaluation());
@@ -144,7 +535,7 @@ public class AlphaBetaAlgorithm {
         Board.resetPositionsEvaluated();
         AlphaBetaAlgorithm alphaBeta = new AlphaBetaAlgorithm(generator, true);
         EvaluationResult abResult = alphaBeta.search(testBoard, 3, true);
-        int abEvaluations = Board.getPositionsEvaluated();
+        long abEvaluations = Board.getPositionsEvaluated();
         
         System.out.println("Alpha-Beta - Best move: " + abResult.getBestBoard().getPosition());
         System.out.println("Alpha-Beta - Evaluation: " + abResult.getEvaluation());
@@ -156,7 +547,7 @@ public class AlphaBetaAlgorithm {
         System.out.println("Same best move: " + sameResult);
         System.out.println("Same evaluation: " + (minimaxResult.getEvaluation() == abResult.getEvaluation()));
         
-        int saved = minimaxEvaluations - abEvaluations;
+        long saved = minimaxEvaluations - abEvaluations;
         double percentage = (double) saved / minimaxEvaluations * 100;
         System.out.println("Positions saved: " + saved + " (" + String.format("%.1f", percentage) + "% reduction)");
         
@@ -0,0 +1,144 @@
+package morris;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+// Persistent cache of deep search results shared across engine invocations.
+// The file is memory-mapped and read at startup, consulted by the search at
+// the root and upper plies, and written back at exit. Entries are kept in
+// access order and the least recently used ones are dropped above the cap.
+//
+// File layout: magic, entry count, then 16-byte records oldest first:
+//   long key, int score, short best move index, byte depth, byte bound
+public class AnalysisCache {
+    private static final int MAGIC = 0x4D414331; // "MAC1"
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_BYTES = 16;
+
+    public static class Entry {
+        private final int depth;
+        private final int bound;
+        private final int score;
+        private final int move;
+
+        public Entry(int depth, int bound, int score, int move) {
+            this.depth = depth;
+            this.bound = bound;
+            this.score = score;
+            this.move = move;
+        }
+
+        public int getDepth() { return depth; }
+        public int getBound() { return bound; } // TranspositionTable.EXACT, LOWER or UPPER
+        public int getScore() { return score; }
+        public int getMove() { return move; }
+    }
+
+    private final Path file;
+    private final int maxEntries;
+    private final LinkedHashMap<Long, Entry> entries;
+
+    private long probes = 0;
+    private long hits = 0;
+
+    public AnalysisCache(Path file, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Analysis cache must hold at least one entry");
+        }
+        this.file = file;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > AnalysisCache.this.maxEntries;
+            }
+        };
+    }
+
+    // Open the cache file, starting empty if it does not exist yet
+    public static AnalysisCache open(Path file, int maxEntries) throws IOException {
+        AnalysisCache cache = new AnalysisCache(file, maxEntries);
+        if (Files.exists(file)) {
+            cache.load();
+        }
+        return cache;
+    }
+
+    private void load() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return; // empty or truncated file: start cold
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not an analysis cache file: " + file);
+            }
+            int count = (int) Math.min(buffer.getInt(4), (channel.size() - HEADER_BYTES) / RECORD_BYTES);
+            for (int i = 0; i < count; i++) {
+                int offset = HEADER_BYTES + i * RECORD_BYTES;
+                long key = buffer.getLong(offset);
+                int score = buffer.getInt(offset + 8);
+                int move = buffer.getShort(offset + 12) & 0xFFFF;
+                int depth = buffer.get(offset + 14);
+                int bound = buffer.get(offset + 15);
+                entries.put(key, new Entry(depth, bound, score, move));
+            }
+        }
+    }
+
+    // Write all entries, least recently used first, then atomically replace the file
+    public void save() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long size = HEADER_BYTES + (long) entries.size() * RECORD_BYTES;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(entries.size());
+            for (Map.Entry<Long, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                buffer.putLong(e.getKey());
+                buffer.putInt(entry.score);
+                buffer.putShort((short) entry.move);
+                buffer.put((byte) entry.depth);
+                buffer.put((byte) entry.bound);
+            }
+            buffer.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Entry probe(long key) {
+        probes++;
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+        }
+        return entry;
+    }
+
+    // Keeps the deeper of two results for the same position; at equal depth an
+    // exact score is only replaced by another exact score, never by a bound
+    public void store(long key, int depth, int bound, int score, int move) {
+        Entry old = entries.get(key);
+        if (old == null || depth > old.depth
+                || (depth == old.depth && (bound == TranspositionTable.EXACT || old.bound != TranspositionTable.EXACT))) {
+            entries.put(key, new Entry(depth, bound, score, move));
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getProbes() { return probes; }
+    public long getHits() { return hits; }
+
+    @Override
+    public String toString() {
+        return String.format("AnalysisCache[%s, entries=%d, probes=%d, hits=%d]", file, size(), probes, hits);
+    }
+}
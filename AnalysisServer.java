@@ -0,0 +1,292 @@
+package morris;
+
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.*;
+
+// Local HTTP/JSON analysis endpoint so tools do not have to start a JVM per query.
+//   GET  /analyze?board=<21 chars>&phase=opening|midgame&side=W|B&depth=<n>[&timeMs=<ms>][&improved=true][&ponder=true]
+//   POST /analyze with the same fields as a flat JSON object
+// Identical requests in flight share one search, and finished results are kept
+// in a bounded LRU cache so repeated positions are answered without searching.
+// With ponder=true the server keeps searching the position after the expected
+// reply until the next request; if that request asks for it, the search
+// continues with its tree and hash table, otherwise it is cancelled.
+public class AnalysisServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final long DEFAULT_HASH_MB = 16;
+    private static final int RESULT_CACHE_ENTRIES = 100_000;
+    private static final int MAX_DEPTH = 20;
+    private static final Pattern JSON_FIELD = Pattern.compile("\"(\\w+)\"\\s*:\\s*(?:\"([^\"]*)\"|(-?\\d+|true|false))");
+    private static final Pattern BOARD = Pattern.compile("[WBx]{21}");
+
+    private final SearchService searchService = new SearchService();
+    private final ConcurrentHashMap<String, CompletableFuture<SearchService.Result>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, SearchService.Result> resultCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, SearchService.Result>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SearchService.Result> eldest) {
+                    return size() > RESULT_CACHE_ENTRIES;
+                }
+            });
+    private final AtomicReference<SearchService.Ponder> pondering = new AtomicReference<>();
+    private final long hashMb; // table size per search (0 = none); tables are pooled by SearchService
+    private HttpServer server;
+
+    public AnalysisServer() {
+        this(DEFAULT_HASH_MB);
+    }
+
+    public AnalysisServer(long hashMb) {
+        if (hashMb < 0) {
+            throw new IllegalArgumentException("Hash size must not be negative");
+        }
+        this.hashMb = hashMb;
+    }
+
+    // Per-depth search telemetry for every search the server runs (null = off)
+    public void setTelemetry(PrintStream out) {
+        searchService.setTelemetry(out);
+    }
+
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/analyze", this::handleAnalyze);
+
+        // Handlers mostly wait for a search, so each gets a cheap (virtual) thread
+        ExecutorService handlers = SearchService.newVirtualThreadExecutor();
+        server.setExecutor(handlers != null ? handlers : Executors.newCachedThreadPool());
+        server.start();
+        EngineMetrics.register();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        searchService.close();
+    }
+
+    private void handleAnalyze(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, String> params;
+            if (exchange.getRequestMethod().equals("POST")) {
+                params = parseJson(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            } else {
+                params = parseQuery(exchange.getRequestURI().getRawQuery());
+            }
+            String response = analyze(params);
+            send(exchange, 200, response);
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, "{\"error\":" + jsonString(e.getMessage()) + "}");
+        } catch (ExecutionException | CancellationException e) {
+            send(exchange, 500, "{\"error\":\"Search failed\"}");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, "{\"error\":\"Server stopping\"}");
+        }
+    }
+
+    String analyze(Map<String, String> params) throws ExecutionException, InterruptedException {
+        String position = params.get("board");
+        if (position == null) {
+            throw new IllegalArgumentException("Missing board");
+        }
+        // The board is echoed into the response and indexes the evaluation tables, so only W/B/x pass
+        if (!BOARD.matcher(position).matches()) {
+            throw new IllegalArgumentException("board must be 21 characters of W, B or x");
+        }
+        Board board = new Board(position);
+        boolean opening = parseChoice(params.getOrDefault("phase", "midgame"), "opening", "midgame", "phase");
+        boolean white = parseChoice(params.getOrDefault("side", "W"), "W", "B", "side");
+        boolean improved = Boolean.parseBoolean(params.getOrDefault("improved", "false"));
+        boolean ponder = Boolean.parseBoolean(params.getOrDefault("ponder", "false"));
+        int depth = parseNumber(params.getOrDefault("depth", String.valueOf(MAX_DEPTH)), "depth");
+        long timeMs = parseNumber(params.getOrDefault("timeMs", "0"), "timeMs");
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("depth must be between 1 and " + MAX_DEPTH);
+        }
+        if (timeMs == 0 && !params.containsKey("depth")) {
+            throw new IllegalArgumentException("Give depth or timeMs");
+        }
+
+        String key = position + '|' + opening + '|' + white + '|' + improved + '|' + depth + '|' + timeMs;
+        SearchService.Result cached = resultCache.get(key);
+        if (cached != null) {
+            return toJson(position, cached, true);
+        }
+
+        // Coalesce: the first request starts the search, identical ones wait on the same future
+        CompletableFuture<SearchService.Result> created = new CompletableFuture<>();
+        CompletableFuture<SearchService.Result> future = inFlight.putIfAbsent(key, created);
+        if (future == null) {
+            // The previous identical search may have finished between the cache
+            // check and putIfAbsent: it caches before leaving inFlight, so look again
+            cached = resultCache.get(key);
+            if (cached != null) {
+                inFlight.remove(key, created);
+                created.complete(cached);
+                return toJson(position, cached, true);
+            }
+            future = created;
+            SearchService.Request request = new SearchService.Request(board, opening, white, depth, timeMs, improved, hashMb);
+            SearchService.Ponder previous = pondering.getAndSet(null);
+            CompletableFuture<SearchService.Result> search;
+            if (previous != null && previous.matches(request)) {
+                search = previous.hit(request);
+            } else {
+                if (previous != null) {
+                    previous.miss();
+                }
+                search = searchService.submit(request);
+            }
+            search.whenComplete((result, error) -> {
+                if (result != null) {
+                    resultCache.put(key, result); // cached before leaving inFlight (see the second check above)
+                    if (ponder) {
+                        startPondering(request, result);
+                    }
+                }
+                inFlight.remove(key);
+                if (error != null) {
+                    created.completeExceptionally(error);
+                } else {
+                    created.complete(result);
+                }
+            });
+        }
+        return toJson(position, future.get(), false);
+    }
+
+    private void startPondering(SearchService.Request request, SearchService.Result result) {
+        SearchService.Ponder previous = pondering.getAndSet(searchService.ponder(request, result));
+        if (previous != null) {
+            previous.miss();
+        }
+    }
+
+    private static boolean parseChoice(String value, String whenTrue, String whenFalse, String name) {
+        if (value.equalsIgnoreCase(whenTrue))
+            return true;
+        if (value.equalsIgnoreCase(whenFalse))
+            return false;
+        throw new IllegalArgumentException(name + " must be " + whenTrue + " or " + whenFalse);
+    }
+
+    private static int parseNumber(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be an integer");
+        }
+    }
+
+    private static String toJson(String position, SearchService.Result result, boolean cached) {
+        return "{\"board\":\"" + position + "\""
+                + ",\"bestMove\":\"" + result.getBestBoard().getPosition() + "\""
+                + ",\"estimate\":" + result.getEvaluation()
+                + ",\"depth\":" + result.getDepth()
+                + ",\"nodes\":" + result.getNodes()
+                + ",\"elapsedMs\":" + result.getElapsedMs()
+                + (result.getExpectedReply() != null ? ",\"ponder\":\"" + result.getExpectedReply().getPosition() + "\"" : "")
+                + ",\"cached\":" + cached + "}";
+    }
+
+    // Messages can carry request text, so quotes, backslashes and control characters are escaped
+    private static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    // Flat objects of string, integer and boolean fields are all the endpoint needs
+    private static Map<String, String> parseJson(String body) {
+        Map<String, String> params = new HashMap<>();
+        Matcher matcher = JSON_FIELD.matcher(body);
+        while (matcher.find()) {
+            params.put(matcher.group(1), matcher.group(2) != null ? matcher.group(2) : matcher.group(3));
+        }
+        return params;
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            int port = DEFAULT_PORT;
+            long hashMb = DEFAULT_HASH_MB;
+            String telemetryFile = null;
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--telemetry") && i + 1 < args.length) {
+                    telemetryFile = args[++i];
+                } else if (args[i].equals("--hash-mb") && i + 1 < args.length) {
+                    hashMb = Long.parseLong(args[++i]);
+                } else if (i == 0) {
+                    port = Integer.parseInt(args[i]);
+                } else {
+                    System.err.println("Usage: java morris.AnalysisServer [port] [--hash-mb <size>] [--telemetry <file|->]");
+                    System.exit(1);
+                }
+            }
+            AnalysisServer server = new AnalysisServer(hashMb);
+            if (telemetryFile != null) {
+                server.setTelemetry(telemetryFile.equals("-") ? System.err
+                        : new PrintStream(Files.newOutputStream(Paths.get(telemetryFile)), true));
+            }
+            server.start(port);
+            System.out.println("Analysis server listening on http://127.0.0.1:" + server.getPort() + "/analyze");
+        } catch (NumberFormatException e) {
+            System.err.println("Error: Port and hash size must be valid integers");
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Error starting server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package morris;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+
+// Annotates every position of a game archive with an engine score.
+// The archive is memory-mapped in chunks of up to 256 MB, so multi-GB files
+// never pass through the heap, and lines are parsed straight from the mapped
+// bytes without line reads or splitting. Each position still allocates: Board
+// is String-backed, so the 21 bytes become a String and a Board, and the search
+// task, its Future and the output line are allocated per position too.
+// Positions are searched in parallel (fixed depth or fixed time per position)
+// and written back in input order. At most IN_FLIGHT_PER_THREAD positions per
+// thread are queued or finished but unwritten, so memory stays bounded.
+//
+// Archive format: one position per line, "<21 chars>[ W|B]", games separated
+// by blank lines. Without W/B the side to move alternates from White at the
+// start of each game. With --phase auto the first 18 plies of a game are
+// opening placements, the rest midgame/endgame.
+//
+// Output: "<board> <W|B> <opening|midgame> <score> <best board> <depth>" per
+// position (score from White's point of view), blank lines kept.
+public class ArchiveAnalyzer {
+    private static final long CHUNK_BYTES = 256L * 1024 * 1024;
+    private static final int IN_FLIGHT_PER_THREAD = 64;
+    private static final int OPENING_PLIES = 18;
+    private static final int MAX_ITERATIVE_DEPTH = 64;
+
+    private final int depth;
+    private final long timeMs;
+    private final String phase; // opening, midgame or auto
+    private final ExecutorService pool;
+    private final int maxInFlight;
+    private final ThreadLocal<AlphaBetaAlgorithm[]> engines;
+
+    // Results in input order; the head is written as soon as it is done
+    private final Deque<Future<String>> pending = new ArrayDeque<>();
+    private final byte[] line = new byte[21];
+    private long positions = 0;
+
+    public ArchiveAnalyzer(int depth, long timeMs, String phase, int threads, long hashMb) {
+        if (depth < 1 && timeMs < 1) {
+            throw new IllegalArgumentException("A depth or a time limit is needed");
+        }
+        if (!phase.equals("opening") && !phase.equals("midgame") && !phase.equals("auto")) {
+            throw new IllegalArgumentException("Phase must be opening, midgame or auto");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be a positive integer");
+        }
+        this.depth = depth;
+        this.timeMs = timeMs;
+        this.phase = phase;
+        this.pool = Executors.newFixedThreadPool(threads);
+        this.maxInFlight = threads * IN_FLIGHT_PER_THREAD;
+        this.engines = ThreadLocal.withInitial(() -> {
+            AlphaBetaAlgorithm opening = new AlphaBetaAlgorithm(new OpeningMoveGenerator(), true);
+            AlphaBetaAlgorithm midgame = new AlphaBetaAlgorithm(new MidgameMoveGenerator(), false);
+            if (hashMb > 0) {
+                opening.setTranspositionTable(new TranspositionTable(hashMb));
+                midgame.setTranspositionTable(new TranspositionTable(hashMb));
+            }
+            return new AlphaBetaAlgorithm[] { opening, midgame };
+        });
+    }
+
+    public long analyze(Path archive, Writer out) throws IOException, InterruptedException {
+        positions = 0;
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long offset = 0;
+            int[] ply = { 0 }; // ply within the current game, carried across chunks
+            while (offset < size) {
+                long length = Math.min(CHUNK_BYTES, size - offset);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                int end = (int) length;
+                if (offset + length < size) {
+                    // Stop after the last complete line; the rest starts the next chunk
+                    while (end > 0 && buffer.get(end - 1) != '\n') {
+                        end--;
+                    }
+                    if (end == 0) {
+                        throw new IOException("Line longer than " + CHUNK_BYTES + " bytes at offset " + offset);
+                    }
+                }
+                parseChunk(buffer, end, offset, ply, out);
+                offset += end;
+            }
+        }
+        while (!pending.isEmpty()) {
+            writeHead(out);
+        }
+        out.flush();
+        return positions;
+    }
+
+    private void parseChunk(MappedByteBuffer buffer, int end, long chunkOffset, int[] ply, Writer out)
+            throws IOException, InterruptedException {
+        int start = 0;
+        while (start < end) {
+            int stop = start;
+            while (stop < end && buffer.get(stop) != '\n') {
+                stop++;
+            }
+            int lineEnd = stop;
+            while (lineEnd > start && (buffer.get(lineEnd - 1) == '\r' || buffer.get(lineEnd - 1) == ' ')) {
+                lineEnd--;
+            }
+
+            if (lineEnd == start) {
+                ply[0] = 0; // game separator
+                submit(CompletableFuture.completedFuture(""), out);
+            } else {
+                boolean sideGiven = lineEnd - start == 23 && buffer.get(start + 21) == ' '
+                        && (buffer.get(start + 22) == 'W' || buffer.get(start + 22) == 'B');
+                if (lineEnd - start != 21 && !sideGiven) {
+                    throw new IOException("Bad archive line at offset " + (chunkOffset + start));
+                }
+                for (int i = 0; i < 21; i++) {
+                    byte c = buffer.get(start + i);
+                    if (c != 'W' && c != 'B' && c != 'x') {
+                        throw new IOException("Bad board character at offset " + (chunkOffset + start + i));
+                    }
+                    line[i] = c;
+                }
+                boolean white = sideGiven ? buffer.get(start + 22) == 'W' : ply[0] % 2 == 0;
+                int plyInGame = ply[0]++;
+                Board board = new Board(new String(line, StandardCharsets.ISO_8859_1));
+                submit(pool.submit(() -> annotate(board, white, plyInGame)), out);
+                positions++;
+            }
+            start = stop + 1;
+        }
+    }
+
+    // Queue a result in input order, writing finished ones while the queue is full
+    private void submit(Future<String> result, Writer out) throws IOException, InterruptedException {
+        pending.add(result);
+        while (pending.size() > maxInFlight || (!pending.isEmpty() && pending.peek().isDone())) {
+            writeHead(out);
+        }
+    }
+
+    private void writeHead(Writer out) throws IOException, InterruptedException {
+        try {
+            out.write(pending.poll().get());
+            out.write('\n');
+        } catch (ExecutionException e) {
+            throw new IOException("Analysis failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private String annotate(Board board, boolean white, int plyInGame) {
+        boolean opening = phase.equals("opening") || (phase.equals("auto") && plyInGame < OPENING_PLIES);
+        int maxDepth = timeMs > 0 ? MAX_ITERATIVE_DEPTH : depth;
+        if (opening && phase.equals("auto")) {
+            maxDepth = Math.min(maxDepth, OPENING_PLIES - plyInGame); // never search past the last placement
+        }
+
+        // The engine plays White: Black's positions are flipped and the result flipped back
+        AlphaBetaAlgorithm search = engines.get()[opening ? 0 : 1];
+        Board view = white ? board : board.flipBoard();
+        AlphaBetaAlgorithm.EvaluationResult result = null;
+        int reached = maxDepth;
+        if (timeMs > 0) {
+            search.setDeadline(System.nanoTime() + timeMs * 1_000_000L);
+            try {
+                for (int d = 1; d <= maxDepth; d++) {
+                    result = search.search(view, d, true);
+                    reached = d;
+                }
+            } catch (SearchCancelledException e) {
+                if (result == null) {
+                    // Not even depth 1 in time: fall back to an unlimited depth-1 search
+                    search.clearDeadline();
+                    result = search.search(view, 1, true);
+                    reached = 1;
+                }
+            } finally {
+                search.clearDeadline();
+            }
+        } else {
+            result = search.search(view, maxDepth, true);
+        }
+
+        Board best = result.getBestBoard();
+        int score = white ? result.getEvaluation() : -result.getEvaluation();
+        return board.getPosition() + " " + (white ? 'W' : 'B') + " " + (opening ? "opening" : "midgame") + " "
+                + score + " " + (white ? best : best.flipBoard()).getPosition() + " " + reached;
+    }
+
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 4 || args.length % 2 != 0) {
+            System.out.println("Usage: java morris.ArchiveAnalyzer <archive_file> <output_file> (--depth <n> | --time-ms <ms>) [--threads <n>] [--phase opening|midgame|auto] [--hash-mb <size>]");
+            System.exit(1);
+        }
+
+        try {
+            int depth = 0;
+            long timeMs = 0;
+            int threads = Runtime.getRuntime().availableProcessors();
+            String phase = "auto";
+            long hashMb = 0;
+            for (int i = 2; i < args.length; i += 2) {
+                if (args[i].equals("--depth")) {
+                    depth = Integer.parseInt(args[i + 1]);
+                } else if (args[i].equals("--time-ms")) {
+                    timeMs = Long.parseLong(args[i + 1]);
+                } else if (args[i].equals("--threads")) {
+                    threads = Integer.parseInt(args[i + 1]);
+                } else if (args[i].equals("--phase")) {
+                    phase = args[i + 1];
+                } else if (args[i].equals("--hash-mb")) {
+                    hashMb = Long.parseLong(args[i + 1]);
+                } else {
+                    System.err.println("Error: Unknown option " + args[i]);
+                    System.exit(1);
+                }
+            }
+
+            ArchiveAnalyzer analyzer = new ArchiveAnalyzer(depth, timeMs, phase, threads, hashMb);
+            long start = System.nanoTime();
+            long count;
+            try (Writer out = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.US_ASCII)) {
+                count = analyzer.analyze(Paths.get(args[0]), out);
+            } finally {
+                analyzer.close();
+            }
+            long ms = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            System.out.println("Positions analyzed: " + count + " in " + ms + " ms (" + (count * 1000 / ms) + " positions/second).");
+
+        } catch (NumberFormatException e) {
+            System.err.println("Error: Numeric options must be valid integers");
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Error: Interrupted");
+            System.exit(1);
+        }
+    }
+}
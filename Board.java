@@ -1,9 +1,20 @@
 package morris;
 
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 public class Board {
     private final String position; // 21-character board state
-    private static int positionsEvaluated = 0; // Counter for performance tracking
+    private long hashKey = -1; // computed on first use
+    // Counter for performance tracking, shared by every search thread: a LongAdder
+    // spreads concurrent increments over per-thread cells and sums them on read
+    private static final LongAdder positionsEvaluated = new LongAdder();
+
+    // Leaf cache for staticEstimationImproved (null = disabled)
+    private static EvaluationCache improvedCache = new EvaluationCache(16);
+    // true: positionsEvaluated counts every logical evaluation, cached or not, so the
+    //       required "Positions evaluated" output is unchanged by the cache (default)
+    // false: positionsEvaluated counts only evaluations actually computed (profiling)
+    private static boolean countCachedEvaluations = true;
 
     public Board(String position) {
         if (position == null || position.length() != 21) {
@@ -17,12 +28,58 @@ public class Board {
         return position;
     }
 
-    public static int getPositionsEvaluated() {
-        return positionsEvaluated;
+    public static long getPositionsEvaluated() {
+        return positionsEvaluated.sum();
     }
 
+    // Only exact while no other thread is evaluating
     public static void resetPositionsEvaluated() {
-        positionsEvaluated = 0;
+        positionsEvaluated.reset();
+    }
+
+    // For evaluations counted outside the static estimators (NNUE leaves, memoized
+    // subtrees) and for corrections, which leave other threads' counts intact
+    static void addPositionsEvaluated(long count) {
+        positionsEvaluated.add(count);
+    }
+
+    // For single-threaded callers that restore an earlier count
+    static void setPositionsEvaluated(long count) {
+        positionsEvaluated.reset();
+        positionsEvaluated.add(count);
+    }
+
+    public static EvaluationCache getEvaluationCache() {
+        return improvedCache;
+    }
+
+    // Pass null to disable the improved evaluation cache
+    public static void setEvaluationCache(EvaluationCache cache) {
+        improvedCache = cache;
+    }
+
+    public static void setCountCachedEvaluations(boolean countCached) {
+        countCachedEvaluations = countCached;
+    }
+
+    // Unique key for the position: bit i = White on i, bit 21+i = Black on i
+    public long hashKey() {
+        if (hashKey < 0) {
+            hashKey = computeHashKey();
+        }
+        return hashKey;
+    }
+
+    private long computeHashKey() {
+        long key = 0;
+        for (int i = 0; i < 21; i++) {
+            char c = position.charAt(i);
+            if (c == 'W')
+                key |= 1L << i;
+            else if (c == 'B')
+                key |= 1L << (21 + i);
+        }
+        return key;
     }
 
     public int countWhitePieces() {
@@ -271,6 +328,12 @@ public class Board {
 
         System.out.println("Positions evaluated: " + getPositionsEvaluated());
 
+        // Test improved evaluation cache (second call should hit)
+        int improvedEval = staticEstimationImproved(testBoard);
+        int improvedAgain = staticEstimationImproved(testBoard);
+        System.out.println("Improved evaluation: " + improvedEval + " (cached: " + improvedAgain + ")");
+        System.out.println(getEvaluationCache());
+
         // Test mill detection with a correct mill case
         Board millBoard = new Board("WxWxWxxxxxxxxxxxxxxxx");
         boolean millFormed = millBoard.closeMill(4, millBoard);
@@ -278,17 +341,32 @@ public class Board {
         System.out.println("Mill formed at position 4: " + millFormed);
         System.out.println("(Testing mill: positions 0,2,4 = W,W,W)");
 
+        // Test the mill lookup tables against the per-line character scans they replaced
+        Random random = new Random(42);
+        char[] cells = new char[21];
+        int mismatches = 0;
+        for (int n = 0; n < 200_000; n++) {
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = "WBx".charAt(random.nextInt(3));
+            }
+            Board randomBoard = new Board(new String(cells));
+            if (millFeatures(randomBoard) != millFeaturesByScan(randomBoard)) {
+                mismatches++;
+            }
+        }
+        System.out.println("Mill features match the character scans on 200000 random boards: " + (mismatches == 0));
+
         System.out.println("=== Board tests completed! ===");
     }
 
     // implementation of static evaluation functions
     public static int staticEstimationOpening(Board board) {
-        positionsEvaluated++; // Increment counter for performance tracking
+        positionsEvaluated.increment(); // Increment counter for performance tracking
         return board.countWhitePieces() - board.countBlackPieces();
     }
 
     public static int staticEstimationMidgameEndgame(Board board) {
-        positionsEvaluated++;
+        positionsEvaluated.increment();
 
         int numWhitePieces = board.countWhitePieces();
         int numBlackPieces = board.countBlackPieces();
@@ -305,8 +383,26 @@ public class Board {
     
     //improved static evaluation function for Part IV 
     public static int staticEstimationImproved(Board board) {
-        positionsEvaluated++;
+        if (improvedCache == null) {
+            positionsEvaluated.increment();
+            return computeEstimationImproved(board);
+        }
+
+        long key = board.hashKey();
+        int cached = improvedCache.probe(key);
+        if (cached != EvaluationCache.MISS) {
+            if (countCachedEvaluations)
+                positionsEvaluated.increment();
+            return cached;
+        }
+
+        positionsEvaluated.increment();
+        int evaluation = computeEstimationImproved(board);
+        improvedCache.store(key, evaluation);
+        return evaluation;
+    }
 
+    private static int computeEstimationImproved(Board board) {
         int whitePieces = board.countWhitePieces();
         int blackPieces = board.countBlackPieces();
         int evaluation = 0;
@@ -330,15 +426,14 @@ public class Board {
         // material advantage
         evaluation += (whitePieces - blackPieces) * 1000;
 
+        // mills, mill opportunities and blocking pieces for both colors in one pass
+        int features = millFeatures(board);
+
         // mill advantage
-        int whiteMills = countMills(board, 'W');
-        int blackMills = countMills(board, 'B');
-        evaluation += (whiteMills - blackMills) * 1200;
+        evaluation += (feature(features, WHITE_MILLS) - feature(features, BLACK_MILLS)) * 1200;
 
         // mill oppurtunities
-        int whiteMillOpportunities = countMillOpportunities(board, 'W');
-        int blackMillOpportunities = countMillOpportunities(board, 'B');
-        evaluation += (whiteMillOpportunities - blackMillOpportunities) * 300;
+        evaluation += (feature(features, WHITE_OPPORTUNITIES) - feature(features, BLACK_OPPORTUNITIES)) * 300;
 
         // number of possible moves
         int mobilityDifference = whiteMoves.size() - blackMoves.size();
@@ -350,9 +445,7 @@ public class Board {
         evaluation += (whiteCenter - blackCenter) * 200;
 
         // blocking opponent mills
-        int whiteBlocking = countBlockingPieces(board, 'W');
-        int blackBlocking = countBlockingPieces(board, 'B');
-        evaluation += (whiteBlocking - blackBlocking) * 250;
+        evaluation += (feature(features, WHITE_BLOCKING) - feature(features, BLACK_BLOCKING)) * 250;
 
         // jumping ability
         if (whitePieces == 3 && blackPieces > 3)
@@ -363,70 +456,106 @@ public class Board {
         return evaluation;
     }
 
-    private static int countMills(Board board, char player) {
-        int mills = 0;
-        String pos = board.getPosition();
-
-        // All possible mill patterns on the Morris board
-        int[][] millPatterns = {
-                // Horizontal mills
-                { 0, 2, 4 }, 
-                { 1, 3, 5 },  
-                { 6, 7, 8 }, 
-                { 9, 10, 11 }, 
-                { 12, 13, 14 }, 
-                { 15, 16, 17 }, 
-                { 18, 19, 20 }, 
-
-                // Vertical mills
-                { 0, 6, 18 }, 
-                { 2, 7, 15 }, 
-                { 4, 8, 12 }, 
-                { 13, 16, 19 },
-                { 5, 9, 14 }, 
-                { 3, 10, 17 }, 
-                { 1, 11, 20 } 
-        };
-
-        for (int[] mill : millPatterns) {
-            if (pos.charAt(mill[0]) == player &&
-                    pos.charAt(mill[1]) == player &&
-                    pos.charAt(mill[2]) == player) {
-                mills++;
+    // All 14 mill lines on the Morris board (7 horizontal, 7 vertical)
+    static final int[][] MILL_PATTERNS = {
+            { 0, 2, 4 }, { 1, 3, 5 }, { 6, 7, 8 }, { 9, 10, 11 }, { 12, 13, 14 },
+            { 15, 16, 17 }, { 18, 19, 20 }, { 0, 6, 18 }, { 2, 7, 15 }, { 4, 8, 12 },
+            { 13, 16, 19 }, { 5, 9, 14 }, { 3, 10, 17 }, { 1, 11, 20 }
+    };
+
+    // Packed feature fields, 5 bits each (a field never exceeds 14, the number of lines)
+    static final int WHITE_MILLS = 0;
+    static final int BLACK_MILLS = 5;
+    static final int WHITE_OPPORTUNITIES = 10;
+    static final int BLACK_OPPORTUNITIES = 15;
+    static final int WHITE_BLOCKING = 20;
+    static final int BLACK_BLOCKING = 25;
+
+    // Ternary cell value: x = 0, W = 1, B = 2
+    private static final int[] CELL_VALUE = new int[128];
+
+    // For every base-3 encoded line (c0 * 9 + c1 * 3 + c2) the packed features it contributes
+    private static final int[] LINE_FEATURES = new int[27];
+
+    static {
+        CELL_VALUE['W'] = 1;
+        CELL_VALUE['B'] = 2;
+
+        for (int index = 0; index < 27; index++) {
+            int white = 0, black = 0, empty = 0;
+            for (int digit = index, i = 0; i < 3; i++, digit /= 3) {
+                int cell = digit % 3;
+                if (cell == 1)
+                    white++;
+                else if (cell == 2)
+                    black++;
+                else
+                    empty++;
             }
+
+            int features = 0;
+            if (white == 3)
+                features += 1 << WHITE_MILLS;
+            if (black == 3)
+                features += 1 << BLACK_MILLS;
+            if (white == 2 && empty == 1)
+                features += 1 << WHITE_OPPORTUNITIES;
+            if (black == 2 && empty == 1)
+                features += 1 << BLACK_OPPORTUNITIES;
+            if (black == 2 && white == 1)
+                features += 1 << WHITE_BLOCKING; // White piece blocks a Black line
+            if (white == 2 && black == 1)
+                features += 1 << BLACK_BLOCKING; // Black piece blocks a White line
+            LINE_FEATURES[index] = features;
         }
+    }
 
-        return mills;
+    // Single pass over the 14 lines: table lookups summed without branching
+    static int millFeatures(Board board) {
+        String pos = board.position;
+        int features = 0;
+        for (int[] mill : MILL_PATTERNS) {
+            int index = CELL_VALUE[pos.charAt(mill[0])] * 9
+                    + CELL_VALUE[pos.charAt(mill[1])] * 3
+                    + CELL_VALUE[pos.charAt(mill[2])];
+            features += LINE_FEATURES[index];
+        }
+        return features;
     }
 
-    private static int countMillOpportunities(Board board, char player) {
-        int opportunities = 0;
+    // Reference for millFeatures: the original countMills, countMillOpportunities
+    // and countBlockingPieces scans, packed into the same fields
+    private static int millFeaturesByScan(Board board) {
         String pos = board.getPosition();
-
-        int[][] millPatterns = {
-                { 0, 2, 4 }, { 1, 3, 5 }, { 6, 7, 8 }, { 9, 10, 11 }, { 12, 13, 14 },
-                { 15, 16, 17 }, { 18, 19, 20 }, { 0, 6, 18 }, { 2, 7, 15 }, { 4, 8, 12 },
-                { 13, 16, 19 }, { 5, 9, 14 }, { 3, 10, 17 }, { 1, 11, 20 }
-        };
-
-        for (int[] mill : millPatterns) {
-            int playerCount = 0;
-            int emptyCount = 0;
-
+        int features = 0;
+        for (int[] mill : MILL_PATTERNS) {
+            int white = 0, black = 0, empty = 0;
             for (int position : mill) {
-                if (pos.charAt(position) == player)
-                    playerCount++;
+                if (pos.charAt(position) == 'W')
+                    white++;
+                else if (pos.charAt(position) == 'B')
+                    black++;
                 else if (pos.charAt(position) == 'x')
-                    emptyCount++;
-            }
-
-            // Opportunity: 2 own pieces + 1 empty space
-            if (playerCount == 2 && emptyCount == 1) {
-                opportunities++;
+                    empty++;
             }
+            if (white == 3)
+                features += 1 << WHITE_MILLS;
+            if (black == 3)
+                features += 1 << BLACK_MILLS;
+            if (white == 2 && empty == 1)
+                features += 1 << WHITE_OPPORTUNITIES;
+            if (black == 2 && empty == 1)
+                features += 1 << BLACK_OPPORTUNITIES;
+            if (black == 2 && white == 1)
+                features += 1 << WHITE_BLOCKING;
+            if (white == 2 && black == 1)
+                features += 1 << BLACK_BLOCKING;
         }
+        return features;
+    }
 
-        return opportunities;
+    static int feature(int features, int field) {
+        return (features >>> field) & 31;
     }
 
     private static int countCenterControl(Board board, char player) {
@@ -445,35 +574,4 @@ public class Board {
         return centerCount;
     }
 
-    private static int countBlockingPieces(Board board, char player) {
-        String pos = board.getPosition();
-        char opponent = (player == 'W') ? 'B' : 'W';
-        int blockingCount = 0;
-
-        int[][] millPatterns = {
-                { 0, 2, 4 }, { 1, 3, 5 }, { 6, 7, 8 }, { 9, 10, 11 }, { 12, 13, 14 },
-                { 15, 16, 17 }, { 18, 19, 20 }, { 0, 6, 18 }, { 2, 7, 15 }, { 4, 8, 12 },
-                { 13, 16, 19 }, { 5, 9, 14 }, { 3, 10, 17 }, { 1, 11, 20 }
-        };
-
-        for (int[] mill : millPatterns) {
-            int playerCount = 0;
-            int opponentCount = 0;
-
-            for (int position : mill) {
-                if (pos.charAt(position) == player)
-                    playerCount++;
-                else if (pos.charAt(position) == opponent)
-                    opponentCount++;
-            }
-
-            // Blocking: opponent has 2 pieces, we have 1
-            if (opponentCount == 2 && playerCount == 1) {
-                blockingCount++;
-            }
-        }
-
-        return blockingCount;
-    }
-
 }
\ No newline at end of file
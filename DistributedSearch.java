@@ -0,0 +1,605 @@
+package morris;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Alpha-Beta spread over worker processes on the same host, each with its own
+// heap and GC. The coordinator makes one work unit per root move and hands
+// them out one at a time to workers connected over local TCP or Unix domain
+// sockets. Each unit is searched with the root window known when it is sent;
+// when a result raises the bound, running units get a window update (the
+// worker restarts the unit with the narrower window, reusing its hash table).
+// A unit running longer than the reassignment limit is also given to an idle
+// worker; the first result wins and the other copy is aborted. A worker that
+// disconnects has its unit put back in the queue.
+//
+// The estimate equals the serial search's. The move may differ between moves
+// of equal score, and the evaluation count is the work done by all workers.
+//
+// Protocol, one line per message:
+//   coordinator -> worker: SEARCH <id> <board> <opening|midgame> <improved 0|1> <depth> <alpha> <beta> <max|min>
+//                          WINDOW <id> <alpha> <beta>, ABORT <id>, QUIT
+//   worker -> coordinator: RESULT <id> <value> <nodes> <evaluations>
+// Endpoints are "<port>" (127.0.0.1) or "unix:<path>".
+public class DistributedSearch implements AutoCloseable {
+    private static final long DEFAULT_REASSIGN_AFTER_MS = 1000;
+
+    // Connection to one worker; lines are read by a thread of its own
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final BufferedReader in;
+        private final Writer out;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.in = new BufferedReader(new InputStreamReader(inputStream(channel), StandardCharsets.US_ASCII));
+            this.out = new OutputStreamWriter(outputStream(channel), StandardCharsets.US_ASCII);
+        }
+
+        synchronized void send(String line) throws IOException {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // already gone
+            }
+        }
+    }
+
+    // Message from a worker; line == null when the connection was lost
+    private static final class Message {
+        private final int worker;
+        private final String line;
+
+        Message(int worker, String line) {
+            this.worker = worker;
+            this.line = line;
+        }
+    }
+
+    private final List<Connection> workers = new ArrayList<>();
+    private final boolean[] alive;
+    private final BlockingQueue<Message> messages = new LinkedBlockingQueue<>();
+    private long reassignAfterNanos = DEFAULT_REASSIGN_AFTER_MS * 1_000_000L;
+    private int nextUnitId = 0; // ids stay unique across searches, so late results are ignored
+
+    // Statistics of the last search
+    private long nodes = 0;
+    private long evaluations = 0;
+    private int reassigned = 0;
+
+    public DistributedSearch(List<String> endpoints) throws IOException {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker is needed");
+        }
+        for (String endpoint : endpoints) {
+            SocketAddress address = address(endpoint);
+            SocketChannel channel = address instanceof UnixDomainSocketAddress
+                    ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+            channel.connect(address);
+            workers.add(new Connection(channel));
+        }
+        alive = new boolean[workers.size()];
+        Arrays.fill(alive, true);
+        for (int i = 0; i < workers.size(); i++) {
+            int index = i;
+            Thread reader = new Thread(() -> readLoop(index), "coordinator-reader-" + i);
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    private void readLoop(int worker) {
+        try {
+            String line;
+            while ((line = workers.get(worker).in.readLine()) != null) {
+                messages.add(new Message(worker, line));
+            }
+        } catch (IOException e) {
+            // treated as a disconnect
+        }
+        messages.add(new Message(worker, null));
+    }
+
+    public void setReassignAfterMs(long ms) {
+        this.reassignAfterNanos = ms * 1_000_000L;
+    }
+
+    public long getNodes() { return nodes; }
+    public long getEvaluations() { return evaluations; }
+    public int getReassigned() { return reassigned; }
+
+    static SocketAddress address(String endpoint) {
+        if (endpoint.startsWith("unix:")) {
+            return UnixDomainSocketAddress.of(endpoint.substring(5));
+        }
+        return new InetSocketAddress("127.0.0.1", Integer.parseInt(endpoint));
+    }
+
+    public AlphaBetaAlgorithm.EvaluationResult search(Board board, int depth, boolean isOpening, boolean improved,
+                                                      boolean isMaximizing) throws IOException {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Depth must be a positive integer");
+        }
+        MoveGenerator generator = isOpening ? new OpeningMoveGenerator() : new MidgameMoveGenerator();
+        List<Board> moves = generator.generateMoves(board, isMaximizing);
+        nodes = 1;
+        evaluations = 0;
+        reassigned = 0;
+        if (moves.isEmpty()) {
+            // Nothing to distribute: evaluated here exactly like the serial search does
+            Evaluator evaluator = Evaluator.forPhase(isOpening, improved);
+            evaluations = 1;
+            return new AlphaBetaAlgorithm.EvaluationResult(board, evaluator.evaluate(board));
+        }
+
+        int firstId = nextUnitId;
+        nextUnitId += moves.size();
+        boolean[] done = new boolean[moves.size()];
+        long[] started = new long[moves.size()];
+        List<Set<Integer>> runningOn = new ArrayList<>();
+        for (int i = 0; i < moves.size(); i++) {
+            runningOn.add(new HashSet<>());
+        }
+        int[] unitOf = new int[workers.size()]; // -1 = idle
+        Arrays.fill(unitOf, -1);
+        int remaining = moves.size();
+        int nextPending = 0;
+        Deque<Integer> requeued = new ArrayDeque<>();
+
+        int best = isMaximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        int bestIndex = 0;
+        String phase = isOpening ? "opening" : "midgame";
+
+        while (remaining > 0) {
+            // Hand out pending units, then copies of slow ones, to idle workers
+            for (int w = 0; w < workers.size(); w++) {
+                if (!alive[w] || unitOf[w] >= 0) {
+                    continue;
+                }
+                int unit = -1;
+                if (!requeued.isEmpty()) {
+                    unit = requeued.poll();
+                } else if (nextPending < moves.size()) {
+                    unit = nextPending++;
+                } else {
+                    long now = System.nanoTime();
+                    for (int i = 0; i < moves.size(); i++) {
+                        if (!done[i] && !runningOn.get(i).isEmpty() && now - started[i] > reassignAfterNanos
+                                && (unit < 0 || started[i] < started[unit])) {
+                            unit = i;
+                        }
+                    }
+                    if (unit >= 0) {
+                        reassigned++;
+                        started[unit] = now; // the next copy only after another full period
+                    }
+                }
+                if (unit < 0) {
+                    continue;
+                }
+                int alpha = isMaximizing ? best : Integer.MIN_VALUE;
+                int beta = isMaximizing ? Integer.MAX_VALUE : best;
+                if (send(w, "SEARCH " + (firstId + unit) + " " + moves.get(unit).getPosition() + " " + phase + " "
+                        + (improved ? 1 : 0) + " " + (depth - 1) + " " + alpha + " " + beta + " " + (isMaximizing ? "min" : "max"))) {
+                    unitOf[w] = unit;
+                    if (runningOn.get(unit).isEmpty()) {
+                        started[unit] = System.nanoTime();
+                    }
+                    runningOn.get(unit).add(w);
+                } else {
+                    requeue(unit, requeued);
+                }
+            }
+            if (!anyAlive()) {
+                throw new IOException("All workers disconnected");
+            }
+
+            Message message;
+            try {
+                message = messages.poll(20, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Distributed search interrupted");
+            }
+            if (message == null) {
+                continue;
+            }
+            int w = message.worker;
+            if (message.line == null) {
+                // Lost worker: its unit goes back to the queue unless another copy runs
+                alive[w] = false;
+                if (unitOf[w] >= 0) {
+                    int unit = unitOf[w];
+                    runningOn.get(unit).remove(w);
+                    unitOf[w] = -1;
+                    if (!done[unit] && runningOn.get(unit).isEmpty()) {
+                        requeue(unit, requeued);
+                    }
+                }
+                continue;
+            }
+
+            String[] parts = message.line.split(" ");
+            if (!parts[0].equals("RESULT")) {
+                continue;
+            }
+            int unit = Integer.parseInt(parts[1]) - firstId;
+            if (unit < 0 || unit >= moves.size()) {
+                continue; // late result of an earlier search
+            }
+            nodes += Long.parseLong(parts[3]);
+            evaluations += Long.parseLong(parts[4]);
+            runningOn.get(unit).remove(w);
+            if (unitOf[w] == unit) {
+                unitOf[w] = -1;
+            }
+            if (done[unit]) {
+                continue; // a copy finished first
+            }
+            done[unit] = true;
+            remaining--;
+            for (int other : runningOn.get(unit)) {
+                send(other, "ABORT " + (firstId + unit));
+                unitOf[other] = -1;
+            }
+            runningOn.get(unit).clear();
+
+            // Values outside the window are bounds that cannot beat the current best
+            int value = Integer.parseInt(parts[2]);
+            if (isMaximizing ? value > best : value < best) {
+                best = value;
+                bestIndex = unit;
+                int alpha = isMaximizing ? best : Integer.MIN_VALUE;
+                int beta = isMaximizing ? Integer.MAX_VALUE : best;
+                for (int other = 0; other < workers.size(); other++) {
+                    if (alive[other] && unitOf[other] >= 0) {
+                        send(other, "WINDOW " + (firstId + unitOf[other]) + " " + alpha + " " + beta);
+                    }
+                }
+            }
+        }
+        return new AlphaBetaAlgorithm.EvaluationResult(moves.get(bestIndex), best);
+    }
+
+    private static void requeue(int unit, Deque<Integer> requeued) {
+        if (!requeued.contains(unit)) {
+            requeued.add(unit);
+        }
+    }
+
+    private boolean anyAlive() {
+        for (boolean a : alive) {
+            if (a) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // False (and the worker closed) when the message cannot be sent
+    private boolean send(int worker, String line) {
+        try {
+            workers.get(worker).send(line);
+            return true;
+        } catch (IOException e) {
+            workers.get(worker).close(); // the reader reports the disconnect
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        for (int w = 0; w < workers.size(); w++) {
+            if (alive[w]) {
+                send(w, "QUIT");
+            }
+            workers.get(w).close();
+        }
+    }
+
+    // ---- Worker ----
+
+    // A unit being searched by a worker; the window may be narrowed while it runs
+    private static final class Unit {
+        private final int id;
+        private final Board board;
+        private final AlphaBetaAlgorithm engine;
+        private final int depth;
+        private final boolean isMaximizing;
+        private volatile int alpha;
+        private volatile int beta;
+        private volatile boolean aborted = false;
+        private volatile AtomicBoolean stop = new AtomicBoolean(false);
+
+        Unit(int id, Board board, AlphaBetaAlgorithm engine, int depth, int alpha, int beta, boolean isMaximizing) {
+            this.id = id;
+            this.board = board;
+            this.engine = engine;
+            this.depth = depth;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.isMaximizing = isMaximizing;
+        }
+    }
+
+    // Serve coordinators one after another until one sends QUIT
+    public static void runWorker(String endpoint, long hashMb, long slowdownMs) throws IOException {
+        SocketAddress address = endpoint.equals("0") ? new InetSocketAddress("127.0.0.1", 0) : address(endpoint);
+        boolean unix = address instanceof UnixDomainSocketAddress;
+        if (unix) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+        }
+        try (ServerSocketChannel server = unix ? ServerSocketChannel.open(StandardProtocolFamily.UNIX) : ServerSocketChannel.open()) {
+            server.bind(address);
+            SocketAddress bound = server.getLocalAddress();
+            System.out.println("Worker listening on " + (unix ? "unix:" + endpoint.substring(5)
+                    : String.valueOf(((InetSocketAddress) bound).getPort())));
+            System.out.flush();
+
+            Map<String, AlphaBetaAlgorithm> engines = new HashMap<>();
+            boolean quit = false;
+            while (!quit) {
+                try (SocketChannel channel = server.accept()) {
+                    quit = serve(new Connection(channel), engines, hashMb, slowdownMs);
+                }
+            }
+        } finally {
+            if (unix) {
+                Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            }
+        }
+    }
+
+    private static boolean serve(Connection connection, Map<String, AlphaBetaAlgorithm> engines, long hashMb,
+                                 long slowdownMs) throws IOException {
+        ExecutorService searcher = Executors.newSingleThreadExecutor();
+        Map<Integer, Unit> units = new ConcurrentHashMap<>();
+        try {
+            String line;
+            while ((line = connection.in.readLine()) != null) {
+                String[] parts = line.split(" ");
+                switch (parts[0]) {
+                    case "SEARCH": {
+                        String key = parts[3] + "/" + parts[4];
+                        AlphaBetaAlgorithm engine = engines.computeIfAbsent(key, k -> {
+                            boolean opening = parts[3].equals("opening");
+                            AlphaBetaAlgorithm ab = new AlphaBetaAlgorithm(
+                                    opening ? new OpeningMoveGenerator() : new MidgameMoveGenerator(),
+                                    opening, parts[4].equals("1"));
+                            if (hashMb > 0) {
+                                ab.setTranspositionTable(new TranspositionTable(hashMb));
+                            }
+                            return ab;
+                        });
+                        Unit unit = new Unit(Integer.parseInt(parts[1]), new Board(parts[2]), engine,
+                                Integer.parseInt(parts[5]), Integer.parseInt(parts[6]), Integer.parseInt(parts[7]),
+                                parts[8].equals("max"));
+                        units.put(unit.id, unit);
+                        searcher.execute(() -> searchUnit(unit, connection, units, slowdownMs));
+                        break;
+                    }
+                    case "WINDOW": {
+                        // Only worth a restart when the hash table keeps the finished subtrees
+                        Unit unit = units.get(Integer.parseInt(parts[1]));
+                        if (unit != null && hashMb > 0) {
+                            unit.alpha = Integer.parseInt(parts[2]);
+                            unit.beta = Integer.parseInt(parts[3]);
+                            unit.stop.set(true);
+                        }
+                        break;
+                    }
+                    case "ABORT": {
+                        Unit unit = units.get(Integer.parseInt(parts[1]));
+                        if (unit != null) {
+                            unit.aborted = true;
+                            unit.stop.set(true);
+                        }
+                        break;
+                    }
+                    case "QUIT":
+                        return true;
+                    default:
+                        break;
+                }
+            }
+            return false;
+        } finally {
+            for (Unit unit : units.values()) {
+                unit.aborted = true;
+                unit.stop.set(true);
+            }
+            searcher.shutdown();
+            try {
+                searcher.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void searchUnit(Unit unit, Connection connection, Map<Integer, Unit> units, long slowdownMs) {
+        long nodes = 0;
+        long evaluations = 0;
+        try {
+            if (slowdownMs > 0) {
+                Thread.sleep(slowdownMs);
+            }
+            AlphaBetaAlgorithm engine = unit.engine;
+            while (!unit.aborted) {
+                AtomicBoolean stop = new AtomicBoolean(false);
+                unit.stop = stop;
+                if (unit.aborted) {
+                    break; // ABORT arrived before the new flag was visible and only stopped the old one
+                }
+                engine.setStopFlag(stop);
+                engine.resetNodes();
+                try {
+                    int value = engine.alphaBeta(unit.board, unit.depth, unit.alpha, unit.beta, unit.isMaximizing).getEvaluation();
+                    nodes += engine.getNodes();
+                    evaluations += engine.getEvaluations();
+                    connection.send("RESULT " + unit.id + " " + value + " " + nodes + " " + evaluations);
+                    return;
+                } catch (SearchCancelledException e) {
+                    nodes += engine.getNodes();
+                    evaluations += engine.getEvaluations();
+                    // window update: search again with the new window, otherwise aborted
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // coordinator gone; the connection loop ends as well
+        } finally {
+            units.remove(unit.id);
+        }
+    }
+
+    // Streams straight on the channel: reading and writing from two threads must
+    // not share the channel's blocking lock as the Channels adapters do
+    private static InputStream inputStream(SocketChannel channel) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return channel.read(ByteBuffer.wrap(b, off, len));
+            }
+        };
+    }
+
+    private static OutputStream outputStream(SocketChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        };
+    }
+
+    // java morris.DistributedSearch worker <port|unix:path|0> [--hash-mb <size>] [--slowdown-ms <ms>]
+    // java morris.DistributedSearch <input_file> <output_file> <depth> <opening|midgame> <endpoint>[,<endpoint>...]
+    // Without arguments: a localhost demo with worker processes started here
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("worker")) {
+            long hashMb = 16;
+            long slowdownMs = 0;
+            for (int i = 2; i + 1 < args.length; i += 2) {
+                if (args[i].equals("--hash-mb")) {
+                    hashMb = Long.parseLong(args[i + 1]);
+                } else if (args[i].equals("--slowdown-ms")) {
+                    slowdownMs = Long.parseLong(args[i + 1]); // for testing reassignment
+                }
+            }
+            runWorker(args.length > 1 ? args[1] : "0", hashMb, slowdownMs);
+            return;
+        }
+        if (args.length == 5) {
+            searchFile(args);
+            return;
+        }
+        if (args.length != 0) {
+            System.out.println("Usage: java morris.DistributedSearch <input_file> <output_file> <depth> <opening|midgame> <endpoint>[,<endpoint>...]");
+            System.out.println("       java morris.DistributedSearch worker <port|unix:path|0> [--hash-mb <size>] [--slowdown-ms <ms>]");
+            System.exit(1);
+        }
+
+        System.out.println("=== Testing DistributedSearch ===");
+        Path socket = Files.createTempDirectory("morris").resolve("worker.sock");
+        List<Process> processes = new ArrayList<>();
+        List<String> endpoints = new ArrayList<>();
+        String[][] workerArgs = { { "0" }, { "0" }, { "unix:" + socket }, { "0", "--slowdown-ms", "3000" } };
+        try {
+            for (String[] extra : workerArgs) {
+                List<String> command = new ArrayList<>(List.of(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                        "-cp", System.getProperty("java.class.path"), DistributedSearch.class.getName(), "worker"));
+                command.addAll(List.of(extra));
+                Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+                processes.add(process);
+                String line = new BufferedReader(new InputStreamReader(process.getInputStream())).readLine();
+                endpoints.add(line.substring(line.lastIndexOf(' ') + 1));
+            }
+            System.out.println("Workers: " + endpoints + " (the last one is slow)");
+
+            String[] positions = { "WxxxxxxWWxWWxBBBBxxxx", "xxxBWxWWWWBBBBxxxxxxx", "WxWxxBxxBxxWxxBxxWxxx" };
+            try (DistributedSearch coordinator = new DistributedSearch(endpoints)) {
+                coordinator.setReassignAfterMs(500);
+                for (String position : positions) {
+                    Board board = new Board(position);
+                    AlphaBetaAlgorithm serial = new AlphaBetaAlgorithm(new MidgameMoveGenerator(), false);
+                    AlphaBetaAlgorithm.EvaluationResult expected = serial.search(board, 6, true);
+                    long start = System.nanoTime();
+                    AlphaBetaAlgorithm.EvaluationResult actual = coordinator.search(board, 6, false, false, true);
+                    System.out.printf("%s depth 6: same estimate=%b (%d), serial %d nodes, distributed %d nodes, %d reassigned, %d ms%n",
+                            position, expected.getEvaluation() == actual.getEvaluation(), actual.getEvaluation(),
+                            serial.getNodes(), coordinator.getNodes(), coordinator.getReassigned(),
+                            (System.nanoTime() - start) / 1_000_000);
+                }
+            }
+        } finally {
+            for (Process process : processes) {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroy();
+                }
+            }
+            Files.deleteIfExists(socket);
+            Files.deleteIfExists(socket.getParent());
+        }
+        System.out.println("=== DistributedSearch tests completed! ===");
+    }
+
+    private static void searchFile(String[] args) {
+        try {
+            Board board = new Board(Files.readString(Paths.get(args[0])).trim());
+            int depth = Integer.parseInt(args[2]);
+            if (!args[3].equals("opening") && !args[3].equals("midgame")) {
+                throw new IllegalArgumentException("Phase must be opening or midgame");
+            }
+            try (DistributedSearch coordinator = new DistributedSearch(Arrays.asList(args[4].split(",")))) {
+                AlphaBetaAlgorithm.EvaluationResult result = coordinator.search(board, depth, args[3].equals("opening"), false, true);
+                System.out.println("Board Position: " + result.getBestBoard().getPosition());
+                System.out.println("Positions evaluated by static estimation: " + coordinator.getEvaluations() + ".");
+                System.out.println("MINIMAX estimate: " + result.getEvaluation() + ".");
+                System.out.println("Nodes: " + coordinator.getNodes() + ", reassigned units: " + coordinator.getReassigned() + ".");
+                Files.writeString(Paths.get(args[1]), result.getBestBoard().getPosition());
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Error: Depth and ports must be valid integers");
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
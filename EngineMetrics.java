@@ -0,0 +1,174 @@
+package morris;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.*;
+
+// Live engine metrics for long-running processes, exposed as the platform
+// MBean morris:type=EngineMetrics (jconsole, VisualVM, jcmd). Searches are
+// registered when they start and finish; while they run, their node counters
+// are read without locking, so the search itself is never slowed down and a
+// reading may lag by a few nodes.
+public class EngineMetrics implements EngineMetricsMBean {
+    private static final EngineMetrics INSTANCE = new EngineMetrics();
+    private static final long MIN_SAMPLE_NANOS = 100_000_000L;
+
+    // Running searches and their node count when they started
+    private final Map<AlphaBetaAlgorithm, Long> running = new ConcurrentHashMap<>();
+    private volatile TranspositionTable lastTable = null;
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder finishedNodes = new LongAdder();
+    private final LongAdder openingSearches = new LongAdder();
+    private final LongAdder openingDepth = new LongAdder();
+    private final LongAdder midgameSearches = new LongAdder();
+    private final LongAdder midgameDepth = new LongAdder();
+
+    // Nodes-per-second sampling, only touched by management reads
+    private long sampleNodes = 0;
+    private long sampleNanos = System.nanoTime();
+    private double currentNps = 0;
+    private double peakNps = 0;
+
+    public static EngineMetrics get() {
+        return INSTANCE;
+    }
+
+    // Registers the MBean once; later calls do nothing
+    public static synchronized void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("morris:type=EngineMetrics");
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register engine metrics: " + e.getMessage(), e);
+        }
+    }
+
+    public void searchStarted(AlphaBetaAlgorithm search) {
+        running.put(search, search.getNodes());
+        if (search.getTranspositionTable() != null) {
+            lastTable = search.getTranspositionTable();
+        }
+    }
+
+    // Also call this when the search was cancelled, with the depth it completed
+    public void searchFinished(AlphaBetaAlgorithm search, boolean isOpening, int depth) {
+        Long startNodes = running.remove(search);
+        searchFinished(search.getNodes() - (startNodes != null ? startNodes : 0), isOpening, depth);
+    }
+
+    // For searches that are not tracked while running
+    public void searchFinished(long nodes, boolean isOpening, int depth) {
+        finishedNodes.add(nodes);
+        searches.increment();
+        if (isOpening) {
+            openingSearches.increment();
+            openingDepth.add(depth);
+        } else {
+            midgameSearches.increment();
+            midgameDepth.add(depth);
+        }
+    }
+
+    @Override
+    public synchronized double getCurrentNodesPerSecond() {
+        sample();
+        return currentNps;
+    }
+
+    @Override
+    public synchronized double getPeakNodesPerSecond() {
+        sample();
+        return peakNps;
+    }
+
+    // Rate since the previous reading, at most once per 100 ms
+    private void sample() {
+        long now = System.nanoTime();
+        if (now - sampleNanos < MIN_SAMPLE_NANOS) {
+            return;
+        }
+        long nodes = getTotalNodes();
+        currentNps = (nodes - sampleNodes) * 1e9 / (now - sampleNanos);
+        peakNps = Math.max(peakNps, currentNps);
+        sampleNodes = nodes;
+        sampleNanos = now;
+    }
+
+    @Override
+    public long getTotalSearches() {
+        return searches.sum();
+    }
+
+    @Override
+    public long getTotalNodes() {
+        long nodes = finishedNodes.sum();
+        for (Map.Entry<AlphaBetaAlgorithm, Long> entry : running.entrySet()) {
+            nodes += entry.getKey().getNodes() - entry.getValue();
+        }
+        return nodes;
+    }
+
+    @Override
+    public long getPositionsEvaluated() {
+        return Board.getPositionsEvaluated();
+    }
+
+    @Override
+    public double getHashFill() {
+        TranspositionTable table = lastTable;
+        return table != null ? table.getFill() : 0.0;
+    }
+
+    @Override
+    public double getHashHitRate() {
+        TranspositionTable table = lastTable;
+        return table != null ? table.getHitRate() : 0.0;
+    }
+
+    @Override
+    public double getEvaluationCacheHitRate() {
+        EvaluationCache cache = Board.getEvaluationCache();
+        return cache != null ? cache.getHitRate() : 0.0;
+    }
+
+    @Override
+    public double getAverageOpeningDepth() {
+        long count = openingSearches.sum();
+        return count == 0 ? 0.0 : (double) openingDepth.sum() / count;
+    }
+
+    @Override
+    public double getAverageMidgameDepth() {
+        long count = midgameSearches.sum();
+        return count == 0 ? 0.0 : (double) midgameDepth.sum() / count;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Testing EngineMetrics ===");
+        register();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("morris:type=EngineMetrics");
+
+        try (SearchService service = new SearchService()) {
+            Board board = new Board("WxxxxxxWWxWWxBBBBxxxx");
+            java.util.concurrent.CompletableFuture<SearchService.Result> search =
+                    service.submit(new SearchService.Request(board, false, true, 30, 1000, false, 16));
+            Thread.sleep(500);
+            System.out.printf("While searching: %.0f nodes/second, %d nodes%n",
+                    server.getAttribute(name, "CurrentNodesPerSecond"), server.getAttribute(name, "TotalNodes"));
+            search.get();
+            service.submit(new SearchService.Request(board, true, true, 4, 0)).get();
+        }
+
+        for (MBeanAttributeInfo attribute : server.getMBeanInfo(name).getAttributes()) {
+            System.out.println(attribute.getName() + " = " + server.getAttribute(name, attribute.getName()));
+        }
+        System.out.println("=== EngineMetrics tests completed! ===");
+    }
+}
@@ -0,0 +1,24 @@
+package morris;
+
+// Management interface of EngineMetrics (platform MBean morris:type=EngineMetrics)
+public interface EngineMetricsMBean {
+    double getCurrentNodesPerSecond();
+
+    double getPeakNodesPerSecond();
+
+    long getTotalSearches();
+
+    long getTotalNodes();
+
+    long getPositionsEvaluated();
+
+    double getHashFill();
+
+    double getHashHitRate();
+
+    double getEvaluationCacheHitRate();
+
+    double getAverageOpeningDepth();
+
+    double getAverageMidgameDepth();
+}
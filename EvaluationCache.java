@@ -0,0 +1,87 @@
+package morris;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Fixed-size, always-replace hash of leaf evaluation scores.
+// Kept separate from any search table: it only remembers what a static
+// estimator returned for a position, never bounds or best moves.
+// Key and score share one long per slot, so concurrent searches can never
+// read a key with another position's score. The statistics are LongAdders, so
+// threads probing at once neither lose counts nor write to one shared field.
+public class EvaluationCache {
+    public static final int MISS = Integer.MIN_VALUE; // returned by probe() when the key is not stored
+
+    private static final int SCORE_BITS = 22; // scores within +-2^21
+    private static final long SCORE_MASK = (1L << SCORE_BITS) - 1;
+    private static final long EMPTY = -1L; // key with every bit set: White and Black on every point
+
+    private final long[] slots; // key << SCORE_BITS | score
+    private final int mask;
+
+    // Statistics for reporting hit rates
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    public EvaluationCache(int sizeBits) {
+        if (sizeBits < 1 || sizeBits > 28) {
+            throw new IllegalArgumentException("Evaluation cache size must be between 2^1 and 2^28 entries");
+        }
+        int size = 1 << sizeBits;
+        this.slots = new long[size];
+        this.mask = size - 1;
+        clear();
+    }
+
+    public int probe(long key) {
+        probes.increment();
+        long slot = slots[indexOf(key)];
+        if (slot != EMPTY && (slot >>> SCORE_BITS) == key) {
+            hits.increment();
+            return (int) (slot << (64 - SCORE_BITS) >> (64 - SCORE_BITS)); // sign-extend the score
+        }
+        return MISS;
+    }
+
+    // Always-replace: the newest position wins the slot
+    public void store(long key, int score) {
+        if (score < -(1 << (SCORE_BITS - 1)) || score >= 1 << (SCORE_BITS - 1)) {
+            return; // does not fit in a slot
+        }
+        slots[indexOf(key)] = (key << SCORE_BITS) | (score & SCORE_MASK);
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(slots, EMPTY);
+        probes.reset();
+        hits.reset();
+    }
+
+    public int size() {
+        return slots.length;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public double getHitRate() {
+        long probeCount = probes.sum();
+        return probeCount == 0 ? 0.0 : (double) hits.sum() / probeCount;
+    }
+
+    private int indexOf(long key) {
+        // Mix the bits so that neighbouring positions spread over the table
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EvaluationCache[size=%d, probes=%d, hits=%d, hitRate=%.1f%%]",
+                size(), getProbes(), getHits(), getHitRate() * 100);
+    }
+}
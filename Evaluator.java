@@ -0,0 +1,14 @@
+package morris;
+
+// Static evaluation of a leaf position, from White's perspective.
+public interface Evaluator {
+    int evaluate(Board board);
+
+    // The evaluator used by the original programs for a phase
+    static Evaluator forPhase(boolean isOpening, boolean improved) {
+        if (improved) {
+            return new ImprovedEvaluator();
+        }
+        return isOpening ? new OpeningEvaluator() : new MidgameEndgameEvaluator();
+    }
+}
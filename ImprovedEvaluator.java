@@ -0,0 +1,8 @@
+package morris;
+
+// Part IV evaluation
+public final class ImprovedEvaluator implements Evaluator {
+    public int evaluate(Board board) {
+        return Board.staticEstimationImproved(board);
+    }
+}
@@ -0,0 +1,462 @@
+package morris;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Self-play match between two engine configurations.
+// Every game goes through the opening (9 placements each with OpeningMoveGenerator)
+// and the midgame/endgame (MidgameMoveGenerator) until a side is down to 2 pieces
+// or cannot move. A threefold repetition or the ply limit is a draw. Games are
+// played in pairs from the same random start with colors swapped, spread over
+// all cores, and the result is reported as W/D/L, an Elo estimate with a 95%
+// interval and an optional SPRT decision.
+//
+// Engine spec: <ab|minimax>[:depth=<n>][:time=<ms>][:eval=basic|improved|nnue][:weights=<file>][:hash=<mb>]
+//              [:mcts=flying|midgame][:mcts-threads=<n>][:policy=random|greedy]
+// With mcts=flying a timed Alpha-Beta engine hands positions where it has 3
+// pieces left (flying) to Monte Carlo Tree Search; mcts=midgame uses it for the
+// whole midgame. The opening always stays with Alpha-Beta.
+public class MatchRunner {
+    private static final int OPENING_PLIES = 18;
+    private static final int RANDOM_OPENING_PLIES = 2; // varied starts, shared by both games of a pair
+    private static final int MAX_MIDGAME_PLIES = 200;
+    private static final int MAX_ITERATIVE_DEPTH = 64;
+
+    public static class EngineConfig {
+        private final String spec;
+        private final boolean alphaBeta;
+        private final int depth;
+        private final long timeMs;
+        private final String evaluation;
+        private final String weightsFile;
+        private final long hashMb;
+        private final String mcts;
+        private final int mctsThreads;
+        private final MctsSearch.Policy policy;
+
+        public EngineConfig(String spec) {
+            String[] parts = spec.split(":");
+            if (!parts[0].equals("ab") && !parts[0].equals("minimax")) {
+                throw new IllegalArgumentException("Unknown algorithm: " + parts[0]);
+            }
+            Map<String, String> options = new HashMap<>();
+            for (int i = 1; i < parts.length; i++) {
+                String[] option = parts[i].split("=", 2);
+                if (option.length != 2) {
+                    throw new IllegalArgumentException("Bad engine option: " + parts[i]);
+                }
+                options.put(option[0], option[1]);
+            }
+
+            this.spec = spec;
+            this.alphaBeta = parts[0].equals("ab");
+            this.depth = Integer.parseInt(options.getOrDefault("depth", "0"));
+            this.timeMs = Long.parseLong(options.getOrDefault("time", "0"));
+            this.evaluation = options.getOrDefault("eval", "basic");
+            this.weightsFile = options.get("weights");
+            this.hashMb = Long.parseLong(options.getOrDefault("hash", "0"));
+            this.mcts = options.getOrDefault("mcts", "none");
+            this.mctsThreads = Integer.parseInt(options.getOrDefault("mcts-threads", "1"));
+            this.policy = MctsSearch.Policy.valueOf(options.getOrDefault("policy", "greedy").toUpperCase(Locale.ROOT));
+
+            if (depth < 1 && timeMs < 1) {
+                throw new IllegalArgumentException("Engine needs depth or time: " + spec);
+            }
+            if (!alphaBeta && timeMs > 0) {
+                throw new IllegalArgumentException("Time limits need the Alpha-Beta engine: " + spec);
+            }
+            if (!evaluation.equals("basic") && !evaluation.equals("improved") && !evaluation.equals("nnue")) {
+                throw new IllegalArgumentException("Unknown evaluation: " + evaluation);
+            }
+            if (evaluation.equals("nnue") && weightsFile == null) {
+                throw new IllegalArgumentException("eval=nnue needs weights=<file>");
+            }
+            if (!mcts.equals("none") && !mcts.equals("flying") && !mcts.equals("midgame")) {
+                throw new IllegalArgumentException("Unknown MCTS phase: " + mcts);
+            }
+            if (!mcts.equals("none") && timeMs < 1) {
+                throw new IllegalArgumentException("mcts needs a time limit: " + spec);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return spec;
+        }
+    }
+
+    // One engine instance per worker thread and side; not thread-safe
+    static class Engine {
+        private final EngineConfig config;
+        private final AlphaBetaAlgorithm openingAB, midgameAB;
+        private final MinimaxAlgorithm openingMM, midgameMM;
+        private final MctsSearch midgameMcts;
+
+        // Per-thread statistics, merged after each game
+        long nodes = 0;
+        long searchNanos = 0;
+        long depthSum = 0;
+        long moves = 0;
+
+        Engine(EngineConfig config) throws IOException {
+            this.config = config;
+            Evaluator openingEval = evaluator(config, true);
+            Evaluator midgameEval = evaluator(config, false);
+            if (config.alphaBeta) {
+                openingAB = new AlphaBetaAlgorithm(new OpeningMoveGenerator(), openingEval);
+                midgameAB = new AlphaBetaAlgorithm(new MidgameMoveGenerator(), midgameEval);
+                if (config.hashMb > 0) {
+                    openingAB.setTranspositionTable(new TranspositionTable(config.hashMb));
+                    midgameAB.setTranspositionTable(new TranspositionTable(config.hashMb));
+                }
+                openingMM = midgameMM = null;
+            } else {
+                openingMM = new MinimaxAlgorithm(new OpeningMoveGenerator(), openingEval);
+                midgameMM = new MinimaxAlgorithm(new MidgameMoveGenerator(), midgameEval);
+                openingAB = midgameAB = null;
+            }
+            midgameMcts = config.mcts.equals("none") ? null
+                    : new MctsSearch(new MidgameMoveGenerator(), false, config.policy, config.mctsThreads);
+        }
+
+        // MCTS takes over where it was selected for the phase
+        private boolean usesMcts(Board view, boolean opening) {
+            if (midgameMcts == null || opening) {
+                return false;
+            }
+            return config.mcts.equals("midgame") || view.countWhitePieces() == 3;
+        }
+
+        private static Evaluator evaluator(EngineConfig config, boolean opening) throws IOException {
+            switch (config.evaluation) {
+                case "improved":
+                    return new ImprovedEvaluator();
+                case "nnue":
+                    return NnueEvaluator.load(Paths.get(config.weightsFile));
+                default:
+                    return Evaluator.forPhase(opening, false);
+            }
+        }
+
+        // Best move for the side to move; the search always plays White (board flipping)
+        Board move(Board board, boolean white, boolean opening, int placementsLeft) {
+            Board view = white ? board : board.flipBoard();
+            int maxDepth = config.timeMs > 0 ? MAX_ITERATIVE_DEPTH : config.depth;
+            if (opening) {
+                maxDepth = Math.min(maxDepth, placementsLeft); // never search past the last placement
+            }
+
+            SearchEvents.Search searchEvent = new SearchEvents.Search();
+            SearchEvents.SlowMove slowEvent = new SearchEvents.SlowMove();
+            searchEvent.begin();
+            slowEvent.begin();
+            long start = System.nanoTime();
+            long startNodes = nodes;
+            Board best;
+            int reached;
+            int score = 0;
+            if (usesMcts(view, opening)) {
+                MctsSearch.Result result = midgameMcts.search(view, config.timeMs);
+                best = result.getBestBoard();
+                score = (int) Math.round((result.getWinRate() - 0.5) * 2000); // win rate as -1000..1000
+                reached = 0;
+                EngineMetrics.get().searchFinished(result.getPlayouts(), false, reached);
+                nodes += result.getPlayouts();
+            } else if (config.alphaBeta) {
+                AlphaBetaAlgorithm search = opening ? openingAB : midgameAB;
+                search.resetNodes();
+                EngineMetrics.get().searchStarted(search);
+                if (config.timeMs > 0) {
+                    best = null;
+                    reached = 0;
+                    search.setDeadline(start + config.timeMs * 1_000_000L);
+                    try {
+                        for (int depth = 1; depth <= maxDepth; depth++) {
+                            AlphaBetaAlgorithm.EvaluationResult result = search.search(view, depth, true);
+                            best = result.getBestBoard();
+                            score = result.getEvaluation();
+                            reached = depth;
+                        }
+                    } catch (SearchCancelledException e) {
+                        if (best == null) {
+                            // Not even depth 1 in time: fall back to an unlimited depth-1 search
+                            search.clearDeadline();
+                            AlphaBetaAlgorithm.EvaluationResult result = search.search(view, 1, true);
+                            best = result.getBestBoard();
+                            score = result.getEvaluation();
+                            reached = 1;
+                        }
+                    }
+                    search.clearDeadline();
+                } else {
+                    AlphaBetaAlgorithm.EvaluationResult result = search.search(view, maxDepth, true);
+                    best = result.getBestBoard();
+                    score = result.getEvaluation();
+                    reached = maxDepth;
+                }
+                EngineMetrics.get().searchFinished(search, opening, reached);
+                nodes += search.getNodes();
+            } else {
+                MinimaxAlgorithm search = opening ? openingMM : midgameMM;
+                search.resetNodes();
+                MinimaxAlgorithm.EvaluationResult result = search.minimax(view, maxDepth, true);
+                best = result.getBestBoard();
+                score = result.getEvaluation();
+                reached = maxDepth;
+                EngineMetrics.get().searchFinished(search.getNodes(), opening, reached);
+                nodes += search.getNodes();
+            }
+            SearchEvents.endMove(searchEvent, slowEvent, board, opening, reached,
+                    white ? score : -score, nodes - startNodes, config.timeMs, System.nanoTime() - start);
+            searchNanos += System.nanoTime() - start;
+            depthSum += reached;
+            moves++;
+            return white ? best : best.flipBoard();
+        }
+    }
+
+    // Totals over all games, from engine A's point of view
+    static class MatchStats {
+        int wins, draws, losses;
+        final long[] nodes = new long[2];
+        final long[] searchNanos = new long[2];
+        final long[] depthSum = new long[2];
+        final long[] moves = new long[2];
+        String allocationReport = null; // with -Dmorris.allocationReport=true
+
+        synchronized void add(int result, Engine a, Engine b) {
+            if (result > 0)
+                wins++;
+            else if (result < 0)
+                losses++;
+            else
+                draws++;
+            Engine[] engines = { a, b };
+            for (int i = 0; i < 2; i++) {
+                nodes[i] += engines[i].nodes;
+                searchNanos[i] += engines[i].searchNanos;
+                depthSum[i] += engines[i].depthSum;
+                moves[i] += engines[i].moves;
+                engines[i].nodes = engines[i].searchNanos = engines[i].depthSum = engines[i].moves = 0;
+            }
+        }
+
+        synchronized int games() {
+            return wins + draws + losses;
+        }
+
+        synchronized double score() {
+            return (wins + 0.5 * draws) / Math.max(1, games());
+        }
+
+        // Per-game variance of the score (win 1, draw 0.5, loss 0)
+        synchronized double variance() {
+            double s = score();
+            int n = Math.max(1, games());
+            return (wins * (1 - s) * (1 - s) + draws * (0.5 - s) * (0.5 - s) + losses * s * s) / n;
+        }
+
+        // Log-likelihood ratio of H1 (elo1) against H0 (elo0), normal approximation
+        synchronized double llr(double elo0, double elo1) {
+            double variance = variance();
+            if (variance == 0) {
+                return 0;
+            }
+            double s0 = expectedScore(elo0);
+            double s1 = expectedScore(elo1);
+            return games() * (s1 - s0) * (2 * score() - s0 - s1) / (2 * variance);
+        }
+
+        synchronized String summary() {
+            int n = Math.max(1, games());
+            double margin = 1.96 * Math.sqrt(variance() / n);
+            return String.format("Games %d: +%d =%d -%d, score %.1f%%, Elo %s [%s, %s]",
+                    games(), wins, draws, losses, score() * 100,
+                    eloText(score()), eloText(score() - margin), eloText(score() + margin));
+        }
+    }
+
+    static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    static String eloText(double score) {
+        if (score <= 0)
+            return "-inf";
+        if (score >= 1)
+            return "+inf";
+        return String.format("%+.1f", -400 * Math.log10(1 / score - 1));
+    }
+
+    // Plays one game; returns +1 if engine A wins, -1 if B wins, 0 for a draw
+    static int playGame(Engine a, Engine b, boolean aIsWhite, long seed) {
+        Random random = new Random(seed);
+        OpeningMoveGenerator openingGenerator = new OpeningMoveGenerator();
+        MidgameMoveGenerator midgameGenerator = new MidgameMoveGenerator();
+
+        Board board = new Board("xxxxxxxxxxxxxxxxxxxxx");
+        boolean whiteToMove = true;
+        for (int ply = 0; ply < OPENING_PLIES; ply++) {
+            if (ply < RANDOM_OPENING_PLIES) {
+                List<Board> moves = openingGenerator.generateMoves(board, whiteToMove);
+                board = moves.get(random.nextInt(moves.size()));
+            } else {
+                Engine engine = whiteToMove == aIsWhite ? a : b;
+                board = engine.move(board, whiteToMove, true, OPENING_PLIES - ply);
+            }
+            whiteToMove = !whiteToMove;
+        }
+
+        Map<Long, Integer> seen = new HashMap<>();
+        for (int ply = 0; ply < MAX_MIDGAME_PLIES; ply++) {
+            int pieces = whiteToMove ? board.countWhitePieces() : board.countBlackPieces();
+            boolean lost = pieces <= 2 || midgameGenerator.generateMoves(board, whiteToMove).isEmpty();
+            if (lost) {
+                boolean aLost = whiteToMove == aIsWhite;
+                return aLost ? -1 : 1;
+            }
+            if (seen.merge(TranspositionTable.key(board, whiteToMove), 1, Integer::sum) >= 3) {
+                return 0; // threefold repetition
+            }
+
+            Engine engine = whiteToMove == aIsWhite ? a : b;
+            board = engine.move(board, whiteToMove, false, 0);
+            whiteToMove = !whiteToMove;
+        }
+        return 0; // ply limit
+    }
+
+    public static MatchStats runMatch(EngineConfig configA, EngineConfig configB, int games, int threads,
+            long seed, double[] sprt) throws InterruptedException {
+        MatchStats stats = new MatchStats();
+        AtomicBoolean stop = new AtomicBoolean(false);
+        double lowerBound = sprt == null ? 0 : Math.log(sprt[3] / (1 - sprt[2]));
+        double upperBound = sprt == null ? 0 : Math.log((1 - sprt[3]) / sprt[2]);
+
+        ThreadLocal<Engine[]> engines = ThreadLocal.withInitial(() -> {
+            try {
+                return new Engine[] { new Engine(configA), new Engine(configB) };
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        AllocationReport allocation = AllocationReport.ENABLED ? AllocationReport.start() : null;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int game = 0; game < games; game++) {
+            final int index = game;
+            futures.add(pool.submit(() -> {
+                if (stop.get()) {
+                    return;
+                }
+                Engine[] pair = engines.get();
+                long allocatedBefore = allocation != null ? AllocationReport.currentThreadAllocatedBytes() : 0;
+                int result = playGame(pair[0], pair[1], index % 2 == 0, seed + index / 2);
+                if (allocation != null) {
+                    allocation.addBytes(AllocationReport.currentThreadAllocatedBytes() - allocatedBefore);
+                }
+                stats.add(result, pair[0], pair[1]);
+
+                int played = stats.games();
+                if (played % Math.max(1, games / 10) == 0) {
+                    System.out.println(stats.summary());
+                }
+                if (sprt != null) {
+                    double llr = stats.llr(sprt[0], sprt[1]);
+                    if (llr <= lowerBound || llr >= upperBound) {
+                        stop.set(true);
+                    }
+                }
+            }));
+        }
+        pool.shutdown();
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                pool.shutdownNow();
+                throw new IllegalStateException("Game failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        if (allocation != null) {
+            stats.allocationReport = allocation.finish(stats.nodes[0] + stats.nodes[1]);
+        }
+        return stats;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3 || args.length % 2 == 0) {
+            System.out.println("Usage: java morris.MatchRunner <engine_a> <engine_b> <games> "
+                    + "[--threads <n>] [--seed <n>] [--sprt <elo0>,<elo1>[,<alpha>,<beta>]]");
+            System.out.println("Engine: <ab|minimax>[:depth=<n>][:time=<ms>][:eval=basic|improved|nnue][:weights=<file>][:hash=<mb>]");
+            System.exit(1);
+        }
+
+        try {
+            EngineConfig configA = new EngineConfig(args[0]);
+            EngineConfig configB = new EngineConfig(args[1]);
+            int games = Integer.parseInt(args[2]);
+            int threads = Runtime.getRuntime().availableProcessors();
+            long seed = 1;
+            double[] sprt = null;
+            for (int i = 3; i < args.length; i += 2) {
+                if (args[i].equals("--threads")) {
+                    threads = Integer.parseInt(args[i + 1]);
+                } else if (args[i].equals("--seed")) {
+                    seed = Long.parseLong(args[i + 1]);
+                } else if (args[i].equals("--sprt")) {
+                    String[] values = args[i + 1].split(",");
+                    sprt = new double[] { Double.parseDouble(values[0]), Double.parseDouble(values[1]),
+                            values.length > 2 ? Double.parseDouble(values[2]) : 0.05,
+                            values.length > 3 ? Double.parseDouble(values[3]) : 0.05 };
+                } else {
+                    System.err.println("Error: Unknown option " + args[i]);
+                    System.exit(1);
+                }
+            }
+
+            EngineMetrics.register();
+            System.out.println("Engine A: " + configA);
+            System.out.println("Engine B: " + configB);
+            long start = System.nanoTime();
+            MatchStats stats = runMatch(configA, configB, games, threads, seed, sprt);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println(stats.summary());
+            for (int i = 0; i < 2; i++) {
+                double seconds = stats.searchNanos[i] / 1e9;
+                System.out.printf("Engine %s: %.0f nodes/second, average depth %.2f over %d moves%n",
+                        i == 0 ? "A" : "B", seconds > 0 ? stats.nodes[i] / seconds : 0.0,
+                        (double) stats.depthSum[i] / Math.max(1, stats.moves[i]), stats.moves[i]);
+            }
+            if (stats.allocationReport != null) {
+                System.out.println(stats.allocationReport);
+            }
+            if (sprt != null) {
+                double llr = stats.llr(sprt[0], sprt[1]);
+                double lower = Math.log(sprt[3] / (1 - sprt[2]));
+                double upper = Math.log((1 - sprt[3]) / sprt[2]);
+                String verdict = llr >= upper ? "H1 accepted" : llr <= lower ? "H0 accepted" : "inconclusive";
+                System.out.printf("SPRT [%.1f, %.1f]: LLR %.2f (bounds %.2f, %.2f) %s%n",
+                        sprt[0], sprt[1], llr, lower, upper, verdict);
+            }
+            System.out.println("Elapsed: " + elapsedMs + " ms");
+
+        } catch (NumberFormatException e) {
+            System.err.println("Error: Numeric argument expected (" + e.getMessage() + ")");
+            System.exit(1);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Error: Match interrupted");
+            System.exit(1);
+        }
+    }
+}
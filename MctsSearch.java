@@ -0,0 +1,297 @@
+package morris;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+// Monte Carlo Tree Search for positions where Alpha-Beta's branching factor
+// explodes, such as flying endgames (3 pieces: any empty point is a target).
+// UCT selection over the existing move generators, playouts with a random or
+// greedy (capture first) policy cut off after a fixed number of plies and
+// scored through the phase's static estimation, tree reuse between moves, and
+// several threads sharing one tree with virtual loss. Like the rest of the
+// engine it always plays White; callers flip boards for Black.
+public class MctsSearch implements AutoCloseable {
+    private static final double EXPLORATION = 1.4;
+    private static final int VIRTUAL_LOSS = 3;
+    private static final int PLAYOUT_PLIES = 40;
+
+    public enum Policy { RANDOM, GREEDY }
+
+    // Most visited move, its win rate for White and the number of playouts behind it
+    public static class Result {
+        private final Board bestBoard;
+        private final double winRate;
+        private final long playouts;
+
+        public Result(Board bestBoard, double winRate, long playouts) {
+            this.bestBoard = bestBoard;
+            this.winRate = winRate;
+            this.playouts = playouts;
+        }
+
+        public Board getBestBoard() { return bestBoard; }
+        public double getWinRate() { return winRate; }
+        public long getPlayouts() { return playouts; }
+    }
+
+    // Tree node; statistics are guarded by the node's lock
+    private static final class Node {
+        private final Board board;
+        private final boolean whiteToMove;
+        private volatile Node[] children = null; // null until expanded
+        private int visits = 0;                  // includes virtual visits in flight
+        private double whiteWins = 0;
+
+        Node(Board board, boolean whiteToMove) {
+            this.board = board;
+            this.whiteToMove = whiteToMove;
+        }
+    }
+
+    private final MoveGenerator moveGenerator;
+    private final Evaluator evaluator;
+    private final boolean isMidgame;
+    private final double scoreScale; // static estimation difference worth about one piece
+    private final Policy policy;
+    private final int threads;
+    private final ExecutorService pool;
+    private Node root = null;
+
+    public MctsSearch(MoveGenerator generator, boolean isOpening, Policy policy, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be a positive integer");
+        }
+        this.moveGenerator = generator;
+        this.evaluator = Evaluator.forPhase(isOpening, false);
+        this.isMidgame = !isOpening;
+        this.scoreScale = isOpening ? 1.0 : 1000.0;
+        this.policy = policy;
+        this.threads = threads;
+        this.pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "mcts");
+            thread.setDaemon(true); // engines owned by pooled match threads are never closed explicitly
+            return thread;
+        });
+    }
+
+    // Search for timeLimitMs with White to move. A position reached two plies
+    // below the previous root keeps its subtree.
+    public Result search(Board board, long timeLimitMs) {
+        root = reuse(board);
+        long deadline = System.nanoTime() + timeLimitMs * 1_000_000L;
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(pool.submit(() -> {
+                Random random = ThreadLocalRandom.current();
+                do {
+                    iterate(random);
+                } while (System.nanoTime() - deadline < 0);
+            }));
+        }
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("MCTS worker failed", e.getCause());
+            }
+        }
+
+        Node[] children = root.children;
+        if (children == null || children.length == 0) {
+            return new Result(board, 0.5, root.visits);
+        }
+        Node best = children[0];
+        for (Node child : children) {
+            if (child.visits > best.visits) {
+                best = child;
+            }
+        }
+        return new Result(best.board, best.visits == 0 ? 0.5 : best.whiteWins / best.visits, root.visits);
+    }
+
+    private Node reuse(Board board) {
+        if (root != null && root.children != null) {
+            for (Node ours : root.children) {
+                Node[] replies = ours.children;
+                if (replies == null)
+                    continue;
+                for (Node reply : replies) {
+                    if (reply.board.getPosition().equals(board.getPosition())) {
+                        return reply;
+                    }
+                }
+            }
+        }
+        return new Node(board, true);
+    }
+
+    // One selection, expansion, playout and backpropagation
+    private void iterate(Random random) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        addVirtualLoss(node, true);
+        path.add(node);
+
+        // Selection: descend while expanded
+        Node[] children;
+        while ((children = node.children) != null && children.length > 0) {
+            node = select(node, children);
+            addVirtualLoss(node, !node.whiteToMove);
+            path.add(node);
+        }
+
+        // Expansion: a leaf that was visited before gets its children
+        if (children == null && !isTerminal(node) && visitsOf(node) > VIRTUAL_LOSS) {
+            children = expand(node);
+            if (children.length > 0) {
+                node = children[random.nextInt(children.length)];
+                addVirtualLoss(node, !node.whiteToMove);
+                path.add(node);
+            }
+        }
+
+        double whiteScore = playout(node.board, node.whiteToMove, random);
+        for (Node visited : path) {
+            boolean chooserIsWhite = visited == root || !visited.whiteToMove;
+            synchronized (visited) {
+                visited.visits += 1 - VIRTUAL_LOSS;
+                visited.whiteWins += whiteScore - (chooserIsWhite ? 0 : VIRTUAL_LOSS);
+            }
+        }
+    }
+
+    // UCT from the point of view of the side to move at parent
+    private static Node select(Node parent, Node[] children) {
+        double logVisits = Math.log(Math.max(1, visitsOf(parent)));
+        Node best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (Node child : children) {
+            int visits;
+            double whiteWins;
+            synchronized (child) {
+                visits = child.visits;
+                whiteWins = child.whiteWins;
+            }
+            if (visits == 0) {
+                return child; // every move is tried once first
+            }
+            double winRate = parent.whiteToMove ? whiteWins / visits : 1 - whiteWins / visits;
+            double score = winRate + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (score > bestScore) {
+                bestScore = score;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    // In-flight visits count as losses for the side that chose the node, so
+    // other threads spread out over the tree instead of following the same path
+    private static void addVirtualLoss(Node node, boolean chooserIsWhite) {
+        synchronized (node) {
+            node.visits += VIRTUAL_LOSS;
+            if (!chooserIsWhite) {
+                node.whiteWins += VIRTUAL_LOSS;
+            }
+        }
+    }
+
+    private static int visitsOf(Node node) {
+        synchronized (node) {
+            return node.visits;
+        }
+    }
+
+    private Node[] expand(Node node) {
+        synchronized (node) {
+            if (node.children == null) {
+                List<Board> moves = moveGenerator.generateMoves(node.board, node.whiteToMove);
+                Node[] children = new Node[moves.size()];
+                for (int i = 0; i < children.length; i++) {
+                    children[i] = new Node(moves.get(i), !node.whiteToMove);
+                }
+                node.children = children;
+            }
+            return node.children;
+        }
+    }
+
+    private boolean isTerminal(Node node) {
+        return isMidgame && piecesOf(node.board, node.whiteToMove) <= 2;
+    }
+
+    private static int piecesOf(Board board, boolean white) {
+        return white ? board.countWhitePieces() : board.countBlackPieces();
+    }
+
+    // Game result for White in [0, 1]: a side down to 2 pieces or without moves
+    // loses; unfinished playouts are scored from the static estimation
+    private double playout(Board board, boolean whiteToMove, Random random) {
+        for (int ply = 0; ply < PLAYOUT_PLIES; ply++) {
+            if (isMidgame && piecesOf(board, whiteToMove) <= 2) {
+                return whiteToMove ? 0 : 1;
+            }
+            List<Board> moves = moveGenerator.generateMoves(board, whiteToMove);
+            if (moves.isEmpty()) {
+                if (!isMidgame) {
+                    break; // board full in the opening: score the position
+                }
+                return whiteToMove ? 0 : 1;
+            }
+            board = policy == Policy.GREEDY ? greedyMove(board, moves, whiteToMove, random)
+                    : moves.get(random.nextInt(moves.size()));
+            whiteToMove = !whiteToMove;
+        }
+        return 1 / (1 + Math.exp(-evaluator.evaluate(board) / scoreScale));
+    }
+
+    // A move that removes an opponent piece if there is one, otherwise a random move
+    private static Board greedyMove(Board board, List<Board> moves, boolean whiteToMove, Random random) {
+        int opponentPieces = piecesOf(board, !whiteToMove);
+        int start = random.nextInt(moves.size());
+        for (int k = 0; k < moves.size(); k++) {
+            Board move = moves.get((start + k) % moves.size());
+            if (piecesOf(move, !whiteToMove) < opponentPieces) {
+                return move;
+            }
+        }
+        return moves.get(start);
+    }
+
+    // Forget the tree, e.g. before a new game
+    public void clear() {
+        root = null;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    public static void main(String[] args) {
+        System.out.println("=== Testing MctsSearch ===");
+
+        // Flying endgame: White has 3 pieces and may jump anywhere
+        Board flying = new Board("WxWxxBxxBxxWxxBxxxBxx");
+        try (MctsSearch mcts = new MctsSearch(new MidgameMoveGenerator(), false, Policy.GREEDY,
+                Runtime.getRuntime().availableProcessors())) {
+            Result result = mcts.search(flying, 500);
+            System.out.printf("Flying endgame: %s win rate %.2f after %d playouts%n",
+                    result.getBestBoard().getPosition(), result.getWinRate(), result.getPlayouts());
+
+            // Reuse: the position after our move and a reply keeps its statistics
+            Board ours = result.getBestBoard();
+            Board reply = new MidgameMoveGenerator().generateMoves(ours, false).get(0);
+            Result next = mcts.search(reply, 200);
+            System.out.println("After reply: " + next.getBestBoard().getPosition() + " after " + next.getPlayouts() + " playouts");
+        }
+
+        AlphaBetaAlgorithm alphaBeta = new AlphaBetaAlgorithm(new MidgameMoveGenerator(), false);
+        System.out.println("Alpha-Beta depth 4: " + alphaBeta.search(flying, 4, true).getBestBoard().getPosition());
+        System.out.println("=== MctsSearch tests completed! ===");
+    }
+}
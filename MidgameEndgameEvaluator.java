@@ -0,0 +1,7 @@
+package morris;
+
+public final class MidgameEndgameEvaluator implements Evaluator {
+    public int evaluate(Board board) {
+        return Board.staticEstimationMidgameEndgame(board);
+    }
+}
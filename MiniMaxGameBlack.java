@@ -36,7 +36,10 @@ public class MiniMaxGameBlack {
             // 2. Use White algorithm on flipped board
             MidgameMoveGenerator generator = new MidgameMoveGenerator();
             MinimaxAlgorithm minimax = new MinimaxAlgorithm(generator, false); // false = midgame phase
+            // Optional allocation and GC report (-Dmorris.allocationReport=true)
+            AllocationReport allocation = AllocationReport.ENABLED ? AllocationReport.start() : null;
             MinimaxAlgorithm.EvaluationResult result = minimax.minimax(flippedBoard, depth, true);
+            String allocationReport = allocation != null ? allocation.finish(minimax.getNodes()) : null;
             
             // 3. Flip result back to original perspective
             Board finalBoard = result.getBestBoard().flipBoard();
@@ -53,6 +56,9 @@ public class MiniMaxGameBlack {
             // Output results (use finalBoard and blackEvaluation)
             System.out.println("Board Position: " + finalBoard.getPosition());
             System.out.println("Positions evaluated by static estimation: " + Board.getPositionsEvaluated() + ".");
+            if (allocationReport != null) {
+                System.out.println(allocationReport);
+            }
             System.out.println("MINIMAX estimate: " + blackEvaluation + ".");
             
             // Write result to output file
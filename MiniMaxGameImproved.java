@@ -33,8 +33,12 @@ public class MiniMaxGameImproved {
             MidgameMoveGenerator generator = new MidgameMoveGenerator();
             MinimaxAlgorithm minimax = new MinimaxAlgorithm(generator, false, true); // false = midgame, true = improved
             
+            // Optional allocation and GC report (-Dmorris.allocationReport=true)
+            AllocationReport allocation = AllocationReport.ENABLED ? AllocationReport.start() : null;
+
             // Find best move for White (maximizing player)
             MinimaxAlgorithm.EvaluationResult result = minimax.minimax(initialBoard, depth, true);
+            String allocationReport = allocation != null ? allocation.finish(minimax.getNodes()) : null;
             
             // Check if a valid move was found
             if (result.getBestBoard() == null) {
@@ -45,6 +49,9 @@ public class MiniMaxGameImproved {
             // Output results in exact format required by assignment
             System.out.println("Board Position: " + result.getBestBoard().getPosition());
             System.out.println("Positions evaluated by static estimation: " + Board.getPositionsEvaluated() + ".");
+            if (allocationReport != null) {
+                System.out.println(allocationReport);
+            }
             System.out.println("MINIMAX estimate: " + result.getEvaluation() + ".");
             
             // Write best board position to output file
@@ -6,8 +6,8 @@ import java.io.IOException;
 public class MiniMaxOpening {
     public static void main(String[] args) {
         // Check command line arguments
-        if (args.length != 3) {
-            System.out.println("Usage: java morris.MiniMaxOpening <input_file> <output_file> <depth>");
+        if (args.length != 3 && !(args.length == 5 && args[3].equals("--memo-mb"))) {
+            System.out.println("Usage: java morris.MiniMaxOpening <input_file> <output_file> <depth> [--memo-mb <size>]");
             System.exit(1);
         }
         
@@ -16,6 +16,7 @@ public class MiniMaxOpening {
             String inputFile = args[0];
             String outputFile = args[1];
             int depth = Integer.parseInt(args[2]);
+            long memoMb = args.length == 5 ? Long.parseLong(args[4]) : 0;
             
             // Validate depth
             if (depth < 1) {
@@ -34,8 +35,17 @@ public class MiniMaxOpening {
             OpeningMoveGenerator generator = new OpeningMoveGenerator();
             MinimaxAlgorithm minimax = new MinimaxAlgorithm(generator, true); // true = opening phase
             
+            // Optional memo of transposed subtrees (same output, less work)
+            if (memoMb > 0) {
+                minimax.setMemoization(memoMb);
+            }
+            
+            // Optional allocation and GC report (-Dmorris.allocationReport=true)
+            AllocationReport allocation = AllocationReport.ENABLED ? AllocationReport.start() : null;
+
             // Find best move for White (maximizing player)
             MinimaxAlgorithm.EvaluationResult result = minimax.minimax(initialBoard, depth, true);
+            String allocationReport = allocation != null ? allocation.finish(minimax.getNodes()) : null;
             
             // Check if a valid move was found
             if (result.getBestBoard() == null) {
@@ -46,13 +56,21 @@ public class MiniMaxOpening {
             // Output results in exact format required by assignment
             System.out.println("Board Position: " + result.getBestBoard().getPosition());
             System.out.println("Positions evaluated by static estimation: " + Board.getPositionsEvaluated() + ".");
+            if (allocationReport != null) {
+                System.out.println(allocationReport);
+            }
+            if (memoMb > 0) {
+                long reused = minimax.getReusedEvaluations();
+                System.out.println("Evaluations computed: " + (Board.getPositionsEvaluated() - reused)
+                        + " (" + reused + " reused from memo).");
+            }
             System.out.println("MINIMAX estimate: " + result.getEvaluation() + ".");
             
             // Write best board position to output file
             writeBoardToFile(outputFile, result.getBestBoard().getPosition());
             
         } catch (NumberFormatException e) {
-            System.err.println("Error: Depth must be a valid integer");
+            System.err.println("Error: Depth and memo size must be valid integers");
             System.exit(1);
         } catch (IOException e) {
             System.err.println("Error reading/writing files: " + e.getMessage());
@@ -34,8 +34,12 @@ public class MiniMaxOpeningImproved {
             OpeningMoveGenerator generator = new OpeningMoveGenerator();
             MinimaxAlgorithm minimax = new MinimaxAlgorithm(generator, true, true); // last true = improved evaluation
             
+            // Optional allocation and GC report (-Dmorris.allocationReport=true)
+            AllocationReport allocation = AllocationReport.ENABLED ? AllocationReport.start() : null;
+
             // Find best move for White (maximizing player)
             MinimaxAlgorithm.EvaluationResult result = minimax.minimax(initialBoard, depth, true);
+            String allocationReport = allocation != null ? allocation.finish(minimax.getNodes()) : null;
             
             // Check if a valid move was found
             if (result.getBestBoard() == null) {
@@ -46,6 +50,9 @@ public class MiniMaxOpeningImproved {
             // Output results in exact format required by assignment
             System.out.println("Board Position: " + result.getBestBoard().getPosition());
             System.out.println("Positions evaluated by static estimation: " + Board.getPositionsEvaluated() + ".");
+            if (allocationReport != null) {
+                System.out.println(allocationReport);
+            }
             System.out.println("MINIMAX estimate: " + result.getEvaluation() + ".");
             
             // Write best board position to output file
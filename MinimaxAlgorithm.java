@@ -3,8 +3,21 @@ package morris;
 import java.util.*;
 public class MinimaxAlgorithm {
     private final MoveGenerator moveGenerator;
-    private final boolean isOpeningPhase;
-    private final boolean useImprovedEvaluation;
+    private final Evaluator evaluator;
+
+    // Principal variation, preallocated and reused between searches
+    private final PrincipalVariation pvTable = new PrincipalVariation();
+
+    // Nodes visited since the last resetNodes() (every call of the recursion)
+    private long nodes = 0;
+    private long evaluations = 0; // leaf evaluations of this instance, memo reuse included, same reset
+
+    // Optional per-iteration statistics (null = off)
+    private SearchTelemetry telemetry = null;
+
+    // Optional memo of exact subtree results (null = off) and the evaluations it saved
+    private SubtreeMemo memo = null;
+    private long reusedEvaluations = 0;
 
     public static class EvaluationResult {
         private final Board bestBoard;
@@ -21,85 +34,159 @@ public class MinimaxAlgorithm {
     
     // standard evaluation
     public MinimaxAlgorithm(MoveGenerator generator, boolean isOpening) {
-        this.moveGenerator = generator;
-        this.isOpeningPhase = isOpening;
-        this.useImprovedEvaluation = false;
+        this(generator, Evaluator.forPhase(isOpening, false));
     }
 
     // improved standard evaluation (Part IV)
 
     public MinimaxAlgorithm(MoveGenerator generator, boolean isOpening, boolean improved) {
+        this(generator, Evaluator.forPhase(isOpening, improved));
+    }
+
+    public MinimaxAlgorithm(MoveGenerator generator, Evaluator evaluator) {
         this.moveGenerator = generator;
-        this.isOpeningPhase = isOpening;
-        this.useImprovedEvaluation = improved;
+        this.evaluator = evaluator;
+    }
+
+    public void setTelemetry(SearchTelemetry telemetry) {
+        this.telemetry = telemetry;
     }
 
+    // Memoize exact subtree results in a table of sizeMb (0 = off). The best board,
+    // score and positionsEvaluated stay those of the full tree: a reused subtree
+    // adds the evaluations it took when it was searched.
+    public void setMemoization(long sizeMb) {
+        this.memo = sizeMb > 0 ? new SubtreeMemo(sizeMb) : null;
+    }
+
+    // Logical evaluations answered from the memo instead of being computed
+    public long getReusedEvaluations() {
+        return reusedEvaluations;
+    }
+
+    // Root entry point: the only place a result object is created
     public EvaluationResult minimax(Board board, int depth, boolean isMaximizing) {
+        pvTable.reset(depth);
+        if (telemetry != null) {
+            telemetry.begin(nodes, evaluations, null);
+        }
+        SearchEvents.Iteration event = new SearchEvents.Iteration();
+        event.begin();
+        long startNodes = nodes;
+        int evaluation = minimax(board, depth, 0, isMaximizing);
+        if (telemetry != null) {
+            telemetry.end(board, depth, evaluation, nodes, evaluations, null);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.board = board.getPosition();
+            event.phase = SearchEvents.phase(moveGenerator);
+            event.depth = depth;
+            event.score = evaluation;
+            event.nodes = nodes - startNodes;
+            event.commit();
+        }
+        Board bestBoard = pvTable.length(0) > 0 ? pvTable.move(0, 0) : board;
+        return new EvaluationResult(bestBoard, evaluation);
+    }
+
+    // Expected line of play from the last search, starting with the best move
+    public List<Board> getPrincipalVariation() {
+        return pvTable.line();
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Leaf evaluations of this instance only, unlike the process-wide Board counter
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    public void resetNodes() {
+        nodes = 0;
+        evaluations = 0;
+    }
+
+    private int minimax(Board board, int depth, int ply, boolean isMaximizing) {
+        pvTable.clear(ply);
+        nodes++;
+
         // Base case: reached maximum depth or leaf node
         if (depth == 0) {
-            int evaluation = evaluateBoard(board);
-            return new EvaluationResult(board, evaluation);
+            return evaluateBoard(board);
         }
         
+        // Transposed subtree searched before: same score, same evaluation count
+        if (memo == null || ply == 0) {
+            return expand(board, depth, ply, isMaximizing);
+        }
+        long key = SubtreeMemo.key(board, depth, isMaximizing);
+        if (memo.probe(key)) {
+            Board.addPositionsEvaluated(memo.getProbedCount());
+            reusedEvaluations += memo.getProbedCount();
+            evaluations += memo.getProbedCount();
+            return memo.getProbedScore();
+        }
+        long evaluatedBefore = Board.getPositionsEvaluated();
+        int value = expand(board, depth, ply, isMaximizing);
+        memo.store(key, value, Board.getPositionsEvaluated() - evaluatedBefore);
+        return value;
+    }
+
+    private int expand(Board board, int depth, int ply, boolean isMaximizing) {
         // Generate all possible moves for current player
         List<Board> possibleMoves = moveGenerator.generateMoves(board, isMaximizing);
         
         // If no moves available, evaluate current position (game might be over)
         if (possibleMoves.isEmpty()) {
-            int evaluation = evaluateBoard(board);
-            return new EvaluationResult(board, evaluation);
+            return evaluateBoard(board);
         }
         
         // Choose between MAX and MIN logic based on current player
         if (isMaximizing) {
-            return maxValue(possibleMoves, depth);
+            return maxValue(possibleMoves, depth, ply);
         } else {
-            return minValue(possibleMoves, depth);
+            return minValue(possibleMoves, depth, ply);
         }
     }
     
-    private EvaluationResult maxValue(List<Board> moves, int depth) {
+    private int maxValue(List<Board> moves, int depth, int ply) {
         int bestValue = Integer.MIN_VALUE;
-        Board bestBoard = null;
         
         for (Board move : moves) {
             // Recursively evaluate this move (opponent's turn, so MIN)
-            EvaluationResult result = minimax(move, depth - 1, false);
+            int value = minimax(move, depth - 1, ply + 1, false);
             
-            if (result.getEvaluation() > bestValue) {
-                bestValue = result.getEvaluation();
-                bestBoard = move;
+            if (value > bestValue) {
+                bestValue = value;
+                pvTable.update(ply, move);
             }
         }
         
-        return new EvaluationResult(bestBoard, bestValue);
+        return bestValue;
     }
  
-    private EvaluationResult minValue(List<Board> moves, int depth) {
+    private int minValue(List<Board> moves, int depth, int ply) {
         int bestValue = Integer.MAX_VALUE;
-        Board bestBoard = null;
         
         for (Board move : moves) {
             // Recursively evaluate this move (opponent's turn, so MAX)
-            EvaluationResult result = minimax(move, depth - 1, true);
+            int value = minimax(move, depth - 1, ply + 1, true);
             
-            if (result.getEvaluation() < bestValue) {
-                bestValue = result.getEvaluation();
-                bestBoard = move;
+            if (value < bestValue) {
+                bestValue = value;
+                pvTable.update(ply, move);
             }
         }
         
-        return new EvaluationResult(bestBoard, bestValue);
+        return bestValue;
     }
- 
+
     private int evaluateBoard(Board board) {
-        if (useImprovedEvaluation) {
-            return Board.staticEstimationImproved(board);
-        } else if (isOpeningPhase) {
-            return Board.staticEstimationOpening(board);
-        } else {
-            return Board.staticEstimationMidgameEndgame(board);
-        }
+        evaluations++;
+        return evaluator.evaluate(board);
     }
     
     public static void main(String[] args) {
@@ -122,6 +209,11 @@ public class MinimaxAlgorithm {
         System.out.println("Best move found: " + result.getBestBoard().getPosition());
         System.out.println("Evaluation score: " + result.getEvaluation());
         System.out.println("Positions evaluated: " + Board.getPositionsEvaluated());
+        System.out.print("Principal variation:");
+        for (Board move : minimax.getPrincipalVariation()) {
+            System.out.print(" " + move.getPosition());
+        }
+        System.out.println();
         
         // Test with depth 1 for comparison
         System.out.println("\nRunning MINIMAX with depth 1 for comparison...");
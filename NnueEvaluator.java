@@ -0,0 +1,275 @@
+package morris;
+
+import java.io.*;
+import java.nio.file.*;
+
+// Small CPU-only neural evaluator in the NNUE style.
+// Input features are (point, color) pairs, 42 in total. The first layer is
+// kept as an int16 accumulator per search ply that is updated incrementally
+// from the parent position (place, move and remove touch at most 3 features),
+// followed by a clipped ReLU and a single int16 output layer.
+// Scores are from White's perspective like the static estimators in Board.
+public final class NnueEvaluator implements Evaluator {
+    public static final int FEATURES = 42;      // 21 points x 2 colors
+    public static final int QA = 64;            // first layer scale (1.0 == 64)
+    public static final int QB = 64;            // output layer scale
+    public static final int SCORE_UNIT = 1000;  // network output 1.0 == one piece of material
+    public static final int MAX_WEIGHT = 32767 / 22; // bound of input weights and biases: keeps a full accumulator inside int16
+
+    private static final int MAGIC = 0x4D4E4E31; // "MNN1"
+    private static final int MAX_PLY = 64;
+    private static final int SCRATCH = MAX_PLY - 1; // slot used by evaluate(Board), not available to callers
+    private static final int BOARD_MASK = (1 << 21) - 1;
+
+    private final int hidden;
+    private final short[] inputWeights;  // [feature * hidden + j]
+    private final short[] inputBias;     // [j]
+    private final short[] outputWeights; // [j]
+    private final short outputBias;
+
+    // Preallocated accumulator stack, one slot per ply (0 .. MAX_PLY - 2), plus the key it was built from
+    private final short[][] accumulators;
+    private final long[] accumulatorKeys = new long[MAX_PLY];
+
+    public NnueEvaluator(int hidden, short[] inputWeights, short[] inputBias, short[] outputWeights, short outputBias) {
+        if (hidden < 1 || inputWeights.length != FEATURES * hidden
+                || inputBias.length != hidden || outputWeights.length != hidden) {
+            throw new IllegalArgumentException("NNUE weight arrays do not match hidden size " + hidden);
+        }
+        // Larger first-layer values could overflow the int16 accumulator without notice
+        checkBound(inputWeights, "input weight");
+        checkBound(inputBias, "input bias");
+        this.hidden = hidden;
+        this.inputWeights = inputWeights;
+        this.inputBias = inputBias;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+        this.accumulators = new short[MAX_PLY][hidden];
+        // Every slot starts as the empty board, so any slot is a valid base for update()
+        for (short[] acc : accumulators) {
+            System.arraycopy(inputBias, 0, acc, 0, hidden);
+        }
+    }
+
+    private static void checkBound(short[] values, String name) {
+        for (short value : values) {
+            if (Math.abs(value) > MAX_WEIGHT) {
+                throw new IllegalArgumentException("NNUE " + name + " " + value + " exceeds " + MAX_WEIGHT);
+            }
+        }
+    }
+
+    public int getHiddenSize() {
+        return hidden;
+    }
+
+    // Full refresh of the accumulator at the given ply
+    public void refresh(int ply, Board board) {
+        long key = board.hashKey();
+        short[] acc = accumulators[ply];
+        System.arraycopy(inputBias, 0, acc, 0, hidden);
+        int white = (int) key & BOARD_MASK;
+        int black = (int) (key >>> 21);
+        for (int point = 0; point < 21; point++) {
+            if ((white & (1 << point)) != 0)
+                addFeature(acc, feature(point, 'W'));
+            else if ((black & (1 << point)) != 0)
+                addFeature(acc, feature(point, 'B'));
+        }
+        accumulatorKeys[ply] = key;
+    }
+
+    // Build the accumulator at ply from the one at ply - 1 by applying only the
+    // changed features (a placement, a slide or hop, and an optional removal)
+    public void update(int ply, Board child) {
+        updateFrom(ply - 1, ply, child.hashKey());
+    }
+
+    private void updateFrom(int fromSlot, int slot, long key) {
+        short[] acc = accumulators[slot];
+        if (fromSlot != slot) {
+            System.arraycopy(accumulators[fromSlot], 0, acc, 0, hidden);
+        }
+
+        long parentKey = accumulatorKeys[fromSlot];
+        long added = key & ~parentKey;
+        long removed = parentKey & ~key;
+        while (added != 0) {
+            int bit = Long.numberOfTrailingZeros(added);
+            addFeature(acc, keyBitToFeature(bit));
+            added &= added - 1;
+        }
+        while (removed != 0) {
+            int bit = Long.numberOfTrailingZeros(removed);
+            subtractFeature(acc, keyBitToFeature(bit));
+            removed &= removed - 1;
+        }
+        accumulatorKeys[slot] = key;
+    }
+
+    // Incremental updates for callers that make moves in place
+    public void place(int ply, int point, char color) {
+        addFeature(accumulators[ply], feature(point, color));
+        accumulatorKeys[ply] |= 1L << keyBit(point, color);
+    }
+
+    public void remove(int ply, int point, char color) {
+        subtractFeature(accumulators[ply], feature(point, color));
+        accumulatorKeys[ply] &= ~(1L << keyBit(point, color));
+    }
+
+    public void move(int ply, int from, int to, char color) {
+        remove(ply, from, color);
+        place(ply, to, color);
+    }
+
+    public int evaluate(int ply) {
+        short[] acc = accumulators[ply];
+        int sum = outputBias * QA;
+        for (int j = 0; j < hidden; j++) {
+            int activation = Math.min(Math.max(acc[j], 0), QA); // clipped ReLU
+            sum += activation * outputWeights[j];
+        }
+        return (int) ((long) sum * SCORE_UNIT / (QA * QB));
+    }
+
+    // Evaluator entry point used by the searches. Consecutive leaves of a depth-first
+    // search differ by a few pieces, so the scratch accumulator is updated from the
+    // previously evaluated position instead of being rebuilt.
+    public int evaluate(Board board) {
+        Board.addPositionsEvaluated(1);
+        updateFrom(SCRATCH, SCRATCH, board.hashKey());
+        return evaluate(SCRATCH);
+    }
+
+    private static int feature(int point, char color) {
+        return point * 2 + (color == 'W' ? 0 : 1);
+    }
+
+    private static int keyBit(int point, char color) {
+        return color == 'W' ? point : 21 + point;
+    }
+
+    private static int keyBitToFeature(int bit) {
+        return bit < 21 ? bit * 2 : (bit - 21) * 2 + 1;
+    }
+
+    private void addFeature(short[] acc, int feature) {
+        int offset = feature * hidden;
+        for (int j = 0; j < hidden; j++) {
+            acc[j] += inputWeights[offset + j];
+        }
+    }
+
+    private void subtractFeature(short[] acc, int feature) {
+        int offset = feature * hidden;
+        for (int j = 0; j < hidden; j++) {
+            acc[j] -= inputWeights[offset + j];
+        }
+    }
+
+    // Compact weight file: magic, hidden size, then every weight as a big-endian int16
+    public static NnueEvaluator load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an NNUE weight file: " + file);
+            }
+            int hidden = in.readUnsignedShort();
+            short[] inputWeights = readShorts(in, FEATURES * hidden);
+            short[] inputBias = readShorts(in, hidden);
+            short[] outputWeights = readShorts(in, hidden);
+            short outputBias = in.readShort();
+            try {
+                return new NnueEvaluator(hidden, inputWeights, inputBias, outputWeights, outputBias);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Bad NNUE weight file " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(hidden);
+            writeShorts(out, inputWeights);
+            writeShorts(out, inputBias);
+            writeShorts(out, outputWeights);
+            out.writeShort(outputBias);
+        }
+    }
+
+    private static short[] readShorts(DataInputStream in, int count) throws IOException {
+        short[] values = new short[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readShort();
+        }
+        return values;
+    }
+
+    private static void writeShorts(DataOutputStream out, short[] values) throws IOException {
+        for (short value : values) {
+            out.writeShort(value);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Testing NnueEvaluator ===");
+
+        // Random small network: incremental updates must match a full refresh
+        java.util.Random random = new java.util.Random(42);
+        int hidden = 16;
+        short[] w1 = new short[FEATURES * hidden];
+        short[] b1 = new short[hidden];
+        short[] w2 = new short[hidden];
+        for (int i = 0; i < w1.length; i++) w1[i] = (short) (random.nextInt(129) - 64);
+        for (int i = 0; i < hidden; i++) b1[i] = (short) random.nextInt(32);
+        for (int i = 0; i < hidden; i++) w2[i] = (short) (random.nextInt(129) - 64);
+        NnueEvaluator nnue = new NnueEvaluator(hidden, w1, b1, w2, (short) 3);
+
+        Board board = new Board("WxxxxxxWWxWWxBBBBxxxx");
+        nnue.refresh(0, board);
+        boolean identical = true;
+        for (Board child : new MidgameMoveGenerator().generateMoves(board, true)) {
+            nnue.update(1, child);
+            identical &= nnue.evaluate(1) == nnue.evaluate(child);
+        }
+        System.out.println("Incremental matches full refresh: " + identical);
+
+        // In-place updates: slide 7 -> 2 and back
+        int before = nnue.evaluate(0);
+        nnue.move(0, 7, 2, 'W');
+        nnue.move(0, 2, 7, 'W');
+        System.out.println("Move and undo restores score: " + (before == nnue.evaluate(0)));
+
+        // Plugged into the search through the Evaluator interface
+        AlphaBetaAlgorithm search = new AlphaBetaAlgorithm(new MidgameMoveGenerator(), nnue);
+        System.out.println("Alpha-Beta depth 3 with NNUE: " + search.search(board, 3, true).getEvaluation());
+
+        Path file = Files.createTempFile("morris", ".nnue");
+        nnue.save(file);
+        NnueEvaluator loaded = load(file);
+        System.out.println("Weight file size: " + Files.size(file) + " bytes");
+        System.out.println("Loaded evaluation matches: " + (loaded.evaluate(board) == nnue.evaluate(board)));
+
+        // A bias that could overflow the accumulator is refused when loading
+        short[] badBias = b1.clone();
+        badBias[0] = (short) (MAX_WEIGHT + 1);
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeShort(hidden);
+            writeShorts(out, w1);
+            writeShorts(out, badBias);
+            writeShorts(out, w2);
+            out.writeShort(3);
+        }
+        try {
+            load(file);
+            System.out.println("Out-of-range bias rejected: false");
+        } catch (IOException e) {
+            System.out.println("Out-of-range bias rejected: true");
+        }
+        Files.delete(file);
+
+        System.out.println("=== NnueEvaluator tests completed! ===");
+    }
+}
@@ -0,0 +1,202 @@
+package morris;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+// Trainer for NnueEvaluator.
+//   generate <data_file> <positions> <depth> : score random midgame positions with our Alpha-Beta search
+//   train <data_file> <weights_file> [epochs] : fit the network to those scores and write int16 weights
+// Data file format: one "<21-char board> <score>" per line, White to move, score from White's side.
+public class NnueTrainer {
+    private static final int HIDDEN = 32;
+    private static final double TARGET_LIMIT = 20.0; // clip decisive scores so they do not dominate the loss
+
+    private final float[] inputWeights = new float[NnueEvaluator.FEATURES * HIDDEN];
+    private final float[] inputBias = new float[HIDDEN];
+    private final float[] outputWeights = new float[HIDDEN];
+    private float outputBias = 0;
+
+    // Scratch buffers reused for every sample
+    private final float[] preActivation = new float[HIDDEN];
+    private final float[] activation = new float[HIDDEN];
+    private final int[] active = new int[21];
+
+    public NnueTrainer(long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < inputWeights.length; i++)
+            inputWeights[i] = (float) (random.nextGaussian() * 0.1);
+        for (int j = 0; j < HIDDEN; j++) {
+            inputBias[j] = 0.5f;
+            outputWeights[j] = (float) (random.nextGaussian() * 0.1);
+        }
+    }
+
+    // One SGD step on a single position, returns the squared error before the step
+    private double trainSample(String position, double target, float learningRate) {
+        int activeCount = 0;
+        for (int point = 0; point < 21; point++) {
+            char c = position.charAt(point);
+            if (c == 'W')
+                active[activeCount++] = point * 2;
+            else if (c == 'B')
+                active[activeCount++] = point * 2 + 1;
+        }
+
+        // Forward
+        float output = outputBias;
+        for (int j = 0; j < HIDDEN; j++) {
+            float sum = inputBias[j];
+            for (int k = 0; k < activeCount; k++)
+                sum += inputWeights[active[k] * HIDDEN + j];
+            preActivation[j] = sum;
+            activation[j] = Math.min(Math.max(sum, 0f), 1f);
+            output += activation[j] * outputWeights[j];
+        }
+
+        // Backward (mean squared error)
+        float error = (float) (output - target);
+        float gradient = 2 * error * learningRate;
+        outputBias -= gradient;
+        for (int j = 0; j < HIDDEN; j++) {
+            float hiddenGradient = gradient * outputWeights[j];
+            outputWeights[j] -= gradient * activation[j];
+            if (preActivation[j] <= 0f || preActivation[j] >= 1f)
+                continue; // clipped: no gradient flows back
+            inputBias[j] = clampWeight(inputBias[j] - hiddenGradient);
+            for (int k = 0; k < activeCount; k++) {
+                int index = active[k] * HIDDEN + j;
+                inputWeights[index] = clampWeight(inputWeights[index] - hiddenGradient);
+            }
+        }
+        return (double) error * error;
+    }
+
+    // Input weights and biases share the bound: the bias plus the at most 21
+    // active features must stay inside the int16 accumulator
+    private static float clampWeight(float weight) {
+        float limit = (float) NnueEvaluator.MAX_WEIGHT / NnueEvaluator.QA;
+        return Math.max(-limit, Math.min(limit, weight));
+    }
+
+    public void train(List<String> positions, double[] targets, int epochs, float learningRate) {
+        Integer[] order = new Integer[positions.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Random random = new Random(7);
+
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            Collections.shuffle(Arrays.asList(order), random);
+            double loss = 0;
+            for (int i : order)
+                loss += trainSample(positions.get(i), targets[i], learningRate);
+            System.out.printf("Epoch %d: loss %.4f%n", epoch, loss / Math.max(1, order.length));
+        }
+    }
+
+    public NnueEvaluator quantize() {
+        short[] w1 = new short[inputWeights.length];
+        for (int i = 0; i < w1.length; i++)
+            w1[i] = (short) Math.round(inputWeights[i] * NnueEvaluator.QA);
+        short[] b1 = new short[HIDDEN];
+        short[] w2 = new short[HIDDEN];
+        for (int j = 0; j < HIDDEN; j++) {
+            b1[j] = quantizeShort(inputBias[j] * NnueEvaluator.QA);
+            w2[j] = quantizeShort(outputWeights[j] * NnueEvaluator.QB);
+        }
+        short b2 = quantizeShort(outputBias * NnueEvaluator.QB);
+        return new NnueEvaluator(HIDDEN, w1, b1, w2, b2);
+    }
+
+    private static short quantizeShort(float value) {
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value)));
+    }
+
+    // Random games through the opening and midgame; every midgame position is
+    // scored by an Alpha-Beta search with the improved estimator
+    public static void generate(Path dataFile, int count, int depth, long seed) throws IOException {
+        Random random = new Random(seed);
+        OpeningMoveGenerator opening = new OpeningMoveGenerator();
+        MidgameMoveGenerator midgame = new MidgameMoveGenerator();
+        AlphaBetaAlgorithm search = new AlphaBetaAlgorithm(midgame, false, true);
+
+        int written = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(dataFile)) {
+            while (written < count) {
+                Board board = new Board("xxxxxxxxxxxxxxxxxxxxx");
+                boolean whiteToMove = true;
+                for (int ply = 0; ply < 18; ply++) {
+                    board = randomMove(opening, board, whiteToMove, random);
+                    whiteToMove = !whiteToMove;
+                }
+
+                for (int ply = 0; ply < 60 && board != null && written < count; ply++) {
+                    if (board.countWhitePieces() <= 2 || board.countBlackPieces() <= 2)
+                        break;
+                    // Always record from White's perspective (board flipping, as in the Black programs)
+                    Board white = whiteToMove ? board : board.flipBoard();
+                    int score = search.search(white, depth, true).getEvaluation();
+                    out.write(white.getPosition() + " " + score);
+                    out.newLine();
+                    written++;
+
+                    board = randomMove(midgame, board, whiteToMove, random);
+                    whiteToMove = !whiteToMove;
+                }
+            }
+        }
+        System.out.println("Positions written: " + written);
+    }
+
+    private static Board randomMove(MoveGenerator generator, Board board, boolean isWhite, Random random) {
+        List<Board> moves = generator.generateMoves(board, isWhite);
+        return moves.isEmpty() ? null : moves.get(random.nextInt(moves.size()));
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3 || !(args[0].equals("generate") || args[0].equals("train"))) {
+            System.out.println("Usage: java morris.NnueTrainer generate <data_file> <positions> <depth>");
+            System.out.println("       java morris.NnueTrainer train <data_file> <weights_file> [epochs]");
+            System.exit(1);
+        }
+
+        try {
+            if (args[0].equals("generate")) {
+                if (args.length != 4) {
+                    System.err.println("Error: generate needs <data_file> <positions> <depth>");
+                    System.exit(1);
+                }
+                generate(Paths.get(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), 1);
+                return;
+            }
+
+            List<String> positions = new ArrayList<>();
+            List<Double> targets = new ArrayList<>();
+            for (String line : Files.readAllLines(Paths.get(args[1]))) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length != 2 || parts[0].length() != 21)
+                    continue; // skip malformed lines
+                positions.add(parts[0]);
+                double target = Integer.parseInt(parts[1]) / (double) NnueEvaluator.SCORE_UNIT;
+                targets.add(Math.max(-TARGET_LIMIT, Math.min(TARGET_LIMIT, target)));
+            }
+            if (positions.isEmpty()) {
+                System.err.println("Error: No training positions in " + args[1]);
+                System.exit(1);
+            }
+
+            int epochs = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+            NnueTrainer trainer = new NnueTrainer(1);
+            trainer.train(positions, targets.stream().mapToDouble(Double::doubleValue).toArray(), epochs, 0.001f);
+            trainer.quantize().save(Paths.get(args[2]));
+            System.out.println("Weights written to " + args[2]);
+
+        } catch (NumberFormatException e) {
+            System.err.println("Error: Numeric argument expected (" + e.getMessage() + ")");
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Error reading/writing files: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
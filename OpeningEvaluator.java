@@ -0,0 +1,7 @@
+package morris;
+
+public final class OpeningEvaluator implements Evaluator {
+    public int evaluate(Board board) {
+        return Board.staticEstimationOpening(board);
+    }
+}
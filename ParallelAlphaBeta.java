@@ -0,0 +1,328 @@
+package morris;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Parallel Alpha-Beta that reproduces the serial search exactly: same best
+// board, score, positionsEvaluated and node count on every run.
+// The top plies are split Young Brothers Wait style: the eldest child is
+// searched first, then all younger brothers in parallel with the window the
+// serial search would give them if it does not change. Results are merged in
+// generator order. When a merged child narrows the window, the speculative
+// results of its younger brothers are dropped (their searches are stopped)
+// and they are searched again with the new window, so every accepted value
+// and count is the serial one. Below the split plies each subtree is an
+// ordinary serial search on a per-thread AlphaBetaAlgorithm.
+public class ParallelAlphaBeta implements AutoCloseable {
+    private static final int MIN_SPLIT_DEPTH = 3; // shallower subtrees are not worth a task each
+    private static final long NOT_MEASURED = -1;
+    private static final long NESTED = -2;
+
+    private final MoveGenerator moveGenerator;
+    private final int splitPlies;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<AlphaBetaAlgorithm> workers;
+
+    // Statistics of the last search
+    private long nodes = 0;
+    private long evaluations = 0;
+    private final LongAdder searchedNodes = new LongAdder(); // including discarded speculative work
+
+    // Optional allocation report (null = off). The calling thread is measured by the
+    // report itself; pool threads add what they allocate in their outermost task, since
+    // a join can run further tasks inside it on the same thread.
+    private AllocationReport allocation = null;
+    private final ThreadLocal<int[]> taskNesting = ThreadLocal.withInitial(() -> new int[1]);
+
+    public ParallelAlphaBeta(MoveGenerator generator, boolean isOpening, boolean improved, int threads) {
+        this(generator, () -> Evaluator.forPhase(isOpening, improved), threads, 2);
+    }
+
+    // evaluators supplies one evaluator per thread, so stateful evaluators are never shared
+    public ParallelAlphaBeta(MoveGenerator generator, Supplier<Evaluator> evaluators, int threads, int splitPlies) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be a positive integer");
+        }
+        this.moveGenerator = generator;
+        this.splitPlies = splitPlies;
+        this.pool = new ForkJoinPool(threads);
+        this.workers = ThreadLocal.withInitial(() -> new AlphaBetaAlgorithm(generator, evaluators.get()));
+    }
+
+    // Result of a node; exact because every node is searched with its serial window
+    private static final class Outcome {
+        private final int value;
+        private final int bestIndex;
+        private final long nodes;
+        private final long evaluations;
+
+        Outcome(int value, int bestIndex, long nodes, long evaluations) {
+            this.value = value;
+            this.bestIndex = bestIndex;
+            this.nodes = nodes;
+            this.evaluations = evaluations;
+        }
+    }
+
+    // Cancellation scope of one batch of brothers; cancelling it also cancels
+    // the batches started inside their subtrees
+    private static final class Batch {
+        private final AtomicBoolean stop = new AtomicBoolean(false);
+        private final List<Batch> children = new ArrayList<>();
+
+        Batch(Batch parent) {
+            if (parent != null) {
+                parent.add(this);
+            }
+        }
+
+        private synchronized void add(Batch child) {
+            children.add(child);
+            if (stop.get()) {
+                child.cancel();
+            }
+        }
+
+        void cancel() {
+            stop.set(true);
+            List<Batch> started;
+            synchronized (this) {
+                started = new ArrayList<>(children);
+            }
+            for (Batch child : started) {
+                child.cancel();
+            }
+        }
+    }
+
+    private final class Node extends RecursiveTask<Outcome> {
+        private static final long serialVersionUID = 1L;
+
+        private final Board board;
+        private final int depth;
+        private final int ply;
+        private final int alpha;
+        private final int beta;
+        private final boolean isMaximizing;
+        private final Batch batch;
+        private List<Board> moves = null;
+
+        Node(Board board, int depth, int ply, int alpha, int beta, boolean isMaximizing, Batch batch) {
+            this.board = board;
+            this.depth = depth;
+            this.ply = ply;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.isMaximizing = isMaximizing;
+            this.batch = batch;
+        }
+
+        @Override
+        protected Outcome compute() {
+            long startBytes = taskStarted();
+            try {
+                return split();
+            } finally {
+                taskFinished(startBytes);
+            }
+        }
+
+        private Outcome split() {
+            if (ply >= splitPlies || depth < MIN_SPLIT_DEPTH) {
+                return serial();
+            }
+            if (batch.stop.get()) {
+                throw new SearchCancelledException();
+            }
+            moves = moveGenerator.generateMoves(board, isMaximizing);
+            if (moves.isEmpty()) {
+                return serial(); // evaluated exactly like the serial search does
+            }
+            searchedNodes.increment();
+
+            int bestValue = isMaximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            int bestIndex = 0;
+            long nodeCount = 1;
+            long evaluationCount = 0;
+            int a = alpha;
+            int b = beta;
+
+            int next = 0;
+            while (next < moves.size()) {
+                // Eldest brother alone first, then every younger one with the current window
+                int end = next == 0 ? 1 : moves.size();
+                int windowAlpha = a;
+                int windowBeta = b;
+                Batch brothers = new Batch(batch);
+                List<Node> tasks = new ArrayList<>(end - next);
+                for (int i = next; i < end; i++) {
+                    tasks.add(new Node(moves.get(i), depth - 1, ply + 1, a, b, !isMaximizing, brothers));
+                }
+                for (int k = 1; k < tasks.size(); k++) {
+                    tasks.get(k).fork();
+                }
+
+                // Merge in generator order, exactly as maxValueAB/minValueAB would
+                for (int k = 0; k < tasks.size(); k++) {
+                    Outcome child = k == 0 ? tasks.get(0).invoke() : tasks.get(k).join();
+                    int i = next + k;
+                    nodeCount += child.nodes;
+                    evaluationCount += child.evaluations;
+                    if (isMaximizing ? child.value > bestValue : child.value < bestValue) {
+                        bestValue = child.value;
+                        bestIndex = i;
+                    }
+                    if (isMaximizing) {
+                        a = Math.max(a, bestValue);
+                    } else {
+                        b = Math.min(b, bestValue);
+                    }
+
+                    boolean cutoff = isMaximizing ? bestValue >= beta : bestValue <= alpha;
+                    boolean windowChanged = a != windowAlpha || b != windowBeta;
+                    if (cutoff || windowChanged) {
+                        if (k < tasks.size() - 1) {
+                            brothers.cancel(); // younger results were searched with a stale window
+                        }
+                        if (cutoff) {
+                            return new Outcome(bestValue, bestIndex, nodeCount, evaluationCount);
+                        }
+                        end = i + 1;
+                        break;
+                    }
+                }
+                next = end;
+            }
+            return new Outcome(bestValue, bestIndex, nodeCount, evaluationCount);
+        }
+
+        private Outcome serial() {
+            AlphaBetaAlgorithm worker = workers.get();
+            worker.resetNodes();
+            worker.setStopFlag(batch.stop);
+            try {
+                int value = worker.searchSubtree(board, depth, alpha, beta, isMaximizing);
+                return new Outcome(value, 0, worker.getNodes(), worker.getEvaluations());
+            } finally {
+                searchedNodes.add(worker.getNodes());
+            }
+        }
+    }
+
+    public AlphaBetaAlgorithm.EvaluationResult search(Board board, int depth, boolean isMaximizing) {
+        long evaluatedBefore = Board.getPositionsEvaluated();
+        searchedNodes.reset();
+
+        AlphaBetaAlgorithm.EvaluationResult result;
+        if (splitPlies < 1 || depth < MIN_SPLIT_DEPTH) {
+            // Too shallow to split: one serial search on a worker
+            result = pool.invoke(ForkJoinTask.adapt(() -> {
+                long startBytes = taskStarted();
+                try {
+                    AlphaBetaAlgorithm worker = workers.get();
+                    worker.resetNodes();
+                    worker.setStopFlag(null);
+                    AlphaBetaAlgorithm.EvaluationResult serial = worker.search(board, depth, isMaximizing);
+                    nodes = worker.getNodes();
+                    evaluations = worker.getEvaluations();
+                    searchedNodes.add(nodes);
+                    return serial;
+                } finally {
+                    taskFinished(startBytes);
+                }
+            }));
+        } else {
+            Node root = new Node(board, depth, 0, Integer.MIN_VALUE, Integer.MAX_VALUE, isMaximizing, new Batch(null));
+            Outcome outcome = pool.invoke(root);
+            nodes = outcome.nodes;
+            evaluations = outcome.evaluations;
+            Board bestBoard = root.moves == null || root.moves.isEmpty() ? board : root.moves.get(outcome.bestIndex);
+            result = new AlphaBetaAlgorithm.EvaluationResult(bestBoard, outcome.value);
+        }
+
+        // Let cancelled speculative searches unwind, then correct what the workers
+        // added to the shared counter to the exact serial count
+        pool.awaitQuiescence(1, TimeUnit.MINUTES);
+        Board.addPositionsEvaluated(evaluatedBefore + evaluations - Board.getPositionsEvaluated());
+        return result;
+    }
+
+    // Pool threads add their allocation to report during the following searches (null = off)
+    public void setAllocationReport(AllocationReport report) {
+        this.allocation = report;
+    }
+
+    // Allocation of the pool thread at the start of its outermost task, NESTED inside
+    // another task on the same thread, NOT_MEASURED without a report or off the pool
+    private long taskStarted() {
+        if (allocation == null || !(Thread.currentThread() instanceof ForkJoinWorkerThread)) {
+            return NOT_MEASURED;
+        }
+        int[] nesting = taskNesting.get();
+        return nesting[0]++ == 0 ? Math.max(0, AllocationReport.currentThreadAllocatedBytes()) : NESTED;
+    }
+
+    private void taskFinished(long startBytes) {
+        if (startBytes == NOT_MEASURED) {
+            return;
+        }
+        taskNesting.get()[0]--;
+        if (startBytes != NESTED) {
+            allocation.addBytes(AllocationReport.currentThreadAllocatedBytes() - startBytes);
+        }
+    }
+
+    // Same as the serial search's node count
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    // All nodes visited, including speculative searches that were discarded
+    public long getSearchedNodes() {
+        return searchedNodes.sum();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    public static void main(String[] args) {
+        System.out.println("=== Testing ParallelAlphaBeta ===");
+        int threads = Runtime.getRuntime().availableProcessors();
+        String[] positions = { "WxxxxxxWWxWWxBBBBxxxx", "xxxBWxWWWWBBBBxxxxxxx", "WxWxxBxxBxxWxxBxxWxxx" };
+
+        try (ParallelAlphaBeta parallel = new ParallelAlphaBeta(new MidgameMoveGenerator(), false, false, threads)) {
+            for (String position : positions) {
+                Board board = new Board(position);
+                for (int depth = 2; depth <= 6; depth++) {
+                    AlphaBetaAlgorithm serial = new AlphaBetaAlgorithm(new MidgameMoveGenerator(), false);
+                    Board.resetPositionsEvaluated();
+                    long start = System.nanoTime();
+                    AlphaBetaAlgorithm.EvaluationResult expected = serial.search(board, depth, true);
+                    long serialMs = (System.nanoTime() - start) / 1_000_000;
+                    long serialCount = Board.getPositionsEvaluated();
+
+                    Board.resetPositionsEvaluated();
+                    start = System.nanoTime();
+                    AlphaBetaAlgorithm.EvaluationResult actual = parallel.search(board, depth, true);
+                    long parallelMs = (System.nanoTime() - start) / 1_000_000;
+
+                    boolean same = expected.getBestBoard().getPosition().equals(actual.getBestBoard().getPosition())
+                            && expected.getEvaluation() == actual.getEvaluation()
+                            && serialCount == Board.getPositionsEvaluated() && serial.getNodes() == parallel.getNodes();
+                    System.out.printf("%s depth %d: same=%b evaluations %d, serial %d ms, parallel %d ms (%d threads, %d nodes searched)%n",
+                            position, depth, same, serialCount, serialMs, parallelMs, threads, parallel.getSearchedNodes());
+                }
+            }
+        }
+        System.out.println("=== ParallelAlphaBeta tests completed! ===");
+    }
+}
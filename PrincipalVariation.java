@@ -0,0 +1,48 @@
+package morris;
+
+import java.util.*;
+
+// Triangular principal-variation table: row ply holds the best line found
+// from that ply down, so row 0 is the expected line of play from the root.
+// Rows are reused between searches and only grow when a deeper search runs.
+class PrincipalVariation {
+    private Board[][] moves = new Board[0][];
+    private int[] lengths = new int[0]; // lengths[ply] = end index (exclusive) of row ply
+
+    void reset(int depth) {
+        int size = depth + 1;
+        if (size > moves.length) {
+            moves = new Board[size][];
+            for (int ply = 0; ply < size; ply++) {
+                moves[ply] = new Board[size - ply];
+            }
+            lengths = new int[size];
+        }
+        clear(0);
+    }
+
+    void clear(int ply) {
+        lengths[ply] = ply;
+    }
+
+    // move is the new best at ply; its line continues with the best line of ply + 1
+    void update(int ply, Board move) {
+        Board[] row = moves[ply];
+        row[0] = move;
+        int childLength = lengths[ply + 1];
+        System.arraycopy(moves[ply + 1], 0, row, 1, childLength - (ply + 1));
+        lengths[ply] = childLength;
+    }
+
+    int length(int ply) {
+        return lengths[ply] - ply;
+    }
+
+    Board move(int ply, int index) {
+        return moves[ply][index];
+    }
+
+    List<Board> line() {
+        return lengths.length == 0 ? new ArrayList<>() : new ArrayList<>(Arrays.asList(moves[0]).subList(0, lengths[0]));
+    }
+}
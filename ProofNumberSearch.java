@@ -0,0 +1,287 @@
+package morris;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+
+// Depth-first proof-number search (df-pn) answering "does White have a forced
+// win within N moves?" in the midgame/endgame, with White to move.
+// Instead of spreading effort uniformly like a fixed-depth search, it always
+// expands the most proving node and stops as soon as the root is proved or
+// disproved. Wins are the existing ones: the side to move has 2 pieces or no
+// legal move. The move limit makes the search tree acyclic, so repetitions
+// need no special handling.
+//
+// Numbers use the phi/delta form: for the side to move, phi is the cost of
+// proving a win and delta the cost of proving a loss. Proof and disproof
+// numbers live in one fixed-size table of two-slot buckets keyed by position,
+// side to move and plies left, so memory stays bounded however long it runs.
+public class ProofNumberSearch {
+    private static final int INFINITY = 100_000_000;
+    private static final int ENTRY_BYTES = 8 + 4 + 4 + 4;
+
+    public enum Outcome { WIN, NO_WIN, UNKNOWN }
+
+    public static class Result {
+        private final Outcome outcome;
+        private final Board winningMove;
+        private final long nodes;
+
+        public Result(Outcome outcome, Board winningMove, long nodes) {
+            this.outcome = outcome;
+            this.winningMove = winningMove;
+            this.nodes = nodes;
+        }
+
+        public Outcome getOutcome() { return outcome; }
+        public Board getWinningMove() { return winningMove; } // null unless WIN
+        public long getNodes() { return nodes; }
+    }
+
+    private final MoveGenerator moveGenerator = new MidgameMoveGenerator();
+
+    // Table: 0 = empty key (real keys always have plies >= 1)
+    private final long[] keys;
+    private final int[] phis;
+    private final int[] deltas;
+    private final int[] work; // nodes spent below the entry, to keep expensive results
+    private final int mask;
+    private int slot; // index found by the last successful probe
+
+    private long nodes = 0;
+    private long maxNodes = Long.MAX_VALUE;
+    private int rootBest = -1;
+
+    public ProofNumberSearch(long tableMb) {
+        if (tableMb < 1) {
+            throw new IllegalArgumentException("Table size must be at least 1 MB");
+        }
+        long entries = Math.max(2, Math.min(1L << 30, Long.highestOneBit(tableMb * 1024 * 1024 / ENTRY_BYTES)));
+        this.keys = new long[(int) entries];
+        this.phis = new int[(int) entries];
+        this.deltas = new int[(int) entries];
+        this.work = new int[(int) entries];
+        this.mask = (int) entries - 2; // even index: first slot of a bucket
+    }
+
+    // Give up with UNKNOWN after this many expanded nodes
+    public void setMaxNodes(long maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Is there a win for White (to move) in at most maxMoves White moves?
+    public Result solve(Board board, int maxMoves) {
+        if (maxMoves < 1) {
+            throw new IllegalArgumentException("Move limit must be a positive integer");
+        }
+        nodes = 0;
+        rootBest = -1;
+        int plies = 2 * maxMoves - 1; // ends with White's last move
+        try {
+            mid(board, true, plies, INFINITY, INFINITY, true);
+        } catch (SearchCancelledException e) {
+            return new Result(Outcome.UNKNOWN, null, nodes);
+        }
+
+        long key = key(board, true, plies);
+        int phi = probe(key) ? phis[slot] : 1;
+        if (phi == 0) {
+            List<Board> moves = moveGenerator.generateMoves(board, true);
+            return new Result(Outcome.WIN, moves.get(rootBest), nodes);
+        }
+        return new Result(Outcome.NO_WIN, null, nodes);
+    }
+
+    // Expand n until its phi or delta reaches the threshold, then store its numbers
+    private void mid(Board board, boolean whiteToMove, int plies, int thresholdPhi, int thresholdDelta, boolean isRoot) {
+        if (++nodes > maxNodes) {
+            throw new SearchCancelledException();
+        }
+        long key = key(board, whiteToMove, plies);
+        long startNodes = nodes;
+
+        List<Board> moves = lost(board, whiteToMove) ? List.of() : moveGenerator.generateMoves(board, whiteToMove);
+        if (moves.isEmpty()) {
+            store(key, INFINITY, 0, 1); // side to move has lost
+            return;
+        }
+        if (plies == 0) {
+            // Out of moves without a win: a loss for White
+            store(key, whiteToMove ? INFINITY : 0, whiteToMove ? 0 : INFINITY, 1);
+            return;
+        }
+
+        long[] childKeys = new long[moves.size()];
+        for (int i = 0; i < childKeys.length; i++) {
+            childKeys[i] = key(moves.get(i), !whiteToMove, plies - 1);
+        }
+
+        int phi;
+        int delta;
+        while (true) {
+            // phi = min child delta, delta = sum of child phi
+            phi = INFINITY;
+            delta = 0;
+            int best = 0;
+            int bestDelta = INFINITY;
+            int secondDelta = INFINITY;
+            int bestPhi = 0;
+            for (int i = 0; i < childKeys.length; i++) {
+                int childPhi = 1;
+                int childDelta = 1;
+                if (probe(childKeys[i])) {
+                    childPhi = phis[slot];
+                    childDelta = deltas[slot];
+                }
+                delta = Math.min(INFINITY, delta + childPhi);
+                if (childDelta < bestDelta) {
+                    secondDelta = bestDelta;
+                    bestDelta = childDelta;
+                    bestPhi = childPhi;
+                    best = i;
+                } else if (childDelta < secondDelta) {
+                    secondDelta = childDelta;
+                }
+            }
+            phi = bestDelta;
+            if (isRoot) {
+                rootBest = best;
+            }
+            if (phi >= thresholdPhi || delta >= thresholdDelta || phi == 0 || delta == 0) {
+                break;
+            }
+            // Thresholds that return control as soon as another child becomes more proving
+            int childThresholdPhi = (int) Math.min(INFINITY, (long) thresholdDelta - delta + bestPhi);
+            int childThresholdDelta = Math.min(thresholdPhi, secondDelta + 1);
+            mid(moves.get(best), !whiteToMove, plies - 1, childThresholdPhi, childThresholdDelta, false);
+        }
+        store(key, phi, delta, (int) Math.min(Integer.MAX_VALUE, nodes - startNodes + 1));
+    }
+
+    // The side to move is down to 2 pieces (no legal move is detected by the generator)
+    private static boolean lost(Board board, boolean whiteToMove) {
+        return (whiteToMove ? board.countWhitePieces() : board.countBlackPieces()) <= 2;
+    }
+
+    private static long key(Board board, boolean whiteToMove, int plies) {
+        return TranspositionTable.key(board, whiteToMove) | ((long) (plies + 1) << 43);
+    }
+
+    private boolean probe(long key) {
+        int bucket = indexOf(key);
+        for (int i = bucket; i < bucket + 2; i++) {
+            if (keys[i] == key) {
+                slot = i;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The first slot keeps the entry that took more work, the second takes the rest
+    private void store(long key, int phi, int delta, int nodesBelow) {
+        int bucket = indexOf(key);
+        int i = bucket + 1;
+        if (keys[bucket] == 0 || keys[bucket] == key || nodesBelow >= work[bucket]) {
+            i = bucket;
+            if (keys[bucket] != 0 && keys[bucket] != key && keys[bucket + 1] != key) {
+                // Demote the previous first-slot entry instead of dropping it
+                keys[bucket + 1] = keys[bucket];
+                phis[bucket + 1] = phis[bucket];
+                deltas[bucket + 1] = deltas[bucket];
+                work[bucket + 1] = work[bucket];
+            } else if (keys[bucket + 1] == key) {
+                keys[bucket + 1] = 0;
+            }
+        }
+        keys[i] = key;
+        phis[i] = phi;
+        deltas[i] = delta;
+        work[i] = nodesBelow;
+    }
+
+    private int indexOf(long key) {
+        return (int) (key * 0x9E3779B97F4A7C15L >>> 32) & mask;
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            solveFile(args);
+            return;
+        }
+        System.out.println("=== Testing ProofNumberSearch ===");
+        String[] positions = { "BxxWxBxxxWBxWxxxxxxxx", "xxWWxxWBBWWxBxWxxxxBx" };
+        ProofNumberSearch solver = new ProofNumberSearch(64);
+        for (String position : positions) {
+            Board board = new Board(position);
+            for (int moves = 1; moves <= 5; moves++) {
+                long start = System.nanoTime();
+                Result result = solver.solve(board, moves);
+                long ms = (System.nanoTime() - start) / 1_000_000;
+                System.out.printf("%s win in %d: %s%s, %d nodes, %d ms%n", position, moves, result.getOutcome(),
+                        result.getWinningMove() != null ? " by " + result.getWinningMove().getPosition() : "",
+                        result.getNodes(), ms);
+                if (result.getOutcome() == Outcome.WIN) {
+                    break;
+                }
+            }
+        }
+
+        // A fixed-depth search needs 2N-1 plies to see a win in N (a win scores 10000)
+        Board board = new Board(positions[0]);
+        for (int depth = 5; depth <= 7; depth += 2) {
+            AlphaBetaAlgorithm alphaBeta = new AlphaBetaAlgorithm(new MidgameMoveGenerator(), false);
+            long start = System.nanoTime();
+            AlphaBetaAlgorithm.EvaluationResult result = alphaBeta.search(board, depth, true);
+            System.out.printf("Alpha-Beta depth %d on %s: estimate %d, %d nodes, %d ms%n", depth, positions[0],
+                    result.getEvaluation(), alphaBeta.getNodes(), (System.nanoTime() - start) / 1_000_000);
+        }
+        System.out.println("=== ProofNumberSearch tests completed! ===");
+    }
+
+    // java morris.ProofNumberSearch <input_file> <moves> [--table-mb <size>] [--max-nodes <n>]
+    private static void solveFile(String[] args) {
+        if (args.length < 2 || args.length % 2 != 0) {
+            System.out.println("Usage: java morris.ProofNumberSearch <input_file> <moves> [--table-mb <size>] [--max-nodes <n>]");
+            System.exit(1);
+        }
+        try {
+            Board board = new Board(Files.readString(Paths.get(args[0])).trim());
+            int moves = Integer.parseInt(args[1]);
+            long tableMb = 64;
+            long maxNodes = Long.MAX_VALUE;
+            for (int i = 2; i < args.length; i += 2) {
+                if (args[i].equals("--table-mb")) {
+                    tableMb = Long.parseLong(args[i + 1]);
+                } else if (args[i].equals("--max-nodes")) {
+                    maxNodes = Long.parseLong(args[i + 1]);
+                } else {
+                    System.err.println("Error: Unknown option " + args[i]);
+                    System.exit(1);
+                }
+            }
+
+            ProofNumberSearch solver = new ProofNumberSearch(tableMb);
+            solver.setMaxNodes(maxNodes);
+            Result result = solver.solve(board, moves);
+            System.out.println("Forced win in " + moves + ": " + result.getOutcome() + ".");
+            if (result.getWinningMove() != null) {
+                System.out.println("Board Position: " + result.getWinningMove().getPosition());
+            }
+            System.out.println("Nodes expanded: " + result.getNodes() + ".");
+        } catch (NumberFormatException e) {
+            System.err.println("Error: Moves and numeric options must be valid integers");
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package morris;
+
+// Thrown out of the search recursion when a cooperative stop is requested
+// (cancellation flag set or deadline passed). The search state stays valid
+// and the instance can be reused for the next search.
+public class SearchCancelledException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public SearchCancelledException() {
+        super("Search stopped", null, false, false); // no stack trace: used for control flow
+    }
+}
@@ -0,0 +1,102 @@
+package morris;
+
+import jdk.jfr.*;
+
+// JDK Flight Recorder events for the engine, so searches line up with GC and
+// JIT activity in one recording. Duration events: their start and end times
+// mark when a search started and finished. They cost nothing unless a
+// recording has them enabled, and are only created at the root.
+//   java -XX:StartFlightRecording:filename=engine.jfr ... ; jfr print --events morris.Iteration engine.jfr
+final class SearchEvents {
+    private SearchEvents() {
+    }
+
+    @Name("morris.Search")
+    @Label("Search")
+    @Category({ "Morris", "Search" })
+    @Description("One move search, from the request to the chosen move")
+    static class Search extends Event {
+        @Label("Board")
+        String board;
+        @Label("Phase")
+        String phase;
+        @Label("Depth Reached")
+        int depth;
+        @Label("Score")
+        int score;
+        @Label("Nodes")
+        long nodes;
+    }
+
+    @Name("morris.Iteration")
+    @Label("Search Iteration")
+    @Category({ "Morris", "Search" })
+    @Description("One completed root search at a fixed depth")
+    static class Iteration extends Event {
+        @Label("Board")
+        String board;
+        @Label("Phase")
+        String phase;
+        @Label("Depth")
+        int depth;
+        @Label("Score")
+        int score;
+        @Label("Nodes")
+        long nodes;
+    }
+
+    // Committed only when the move took longer than its own time budget, so
+    // moves without a time limit never produce it. No JFR threshold: the
+    // comparison with the budget is made in endMove.
+    @Name("morris.SlowMove")
+    @Label("Slow Move")
+    @Category({ "Morris", "Search" })
+    @Description("Move search that exceeded the time budget")
+    @Threshold("0 ms")
+    static class SlowMove extends Event {
+        @Label("Board")
+        String board;
+        @Label("Phase")
+        String phase;
+        @Label("Depth Reached")
+        int depth;
+        @Label("Time Limit")
+        @Timespan(Timespan.MILLISECONDS)
+        long timeLimit;
+    }
+
+    static String phase(boolean isOpening) {
+        return isOpening ? "opening" : "midgame";
+    }
+
+    static String phase(MoveGenerator generator) {
+        return phase(generator instanceof OpeningMoveGenerator);
+    }
+
+    // Commits a Search event begun with search.begin(), for searches without a time budget
+    static void endSearch(Search search, Board board, boolean isOpening, int depth, int score, long nodes) {
+        search.end();
+        if (search.shouldCommit()) {
+            search.board = board.getPosition();
+            search.phase = phase(isOpening);
+            search.depth = depth;
+            search.score = score;
+            search.nodes = nodes;
+            search.commit();
+        }
+    }
+
+    // Commits the move-level events begun with search.begin() and slow.begin()
+    static void endMove(Search search, SlowMove slow, Board board, boolean isOpening, int depth, int score,
+            long nodes, long timeLimitMs, long elapsedNanos) {
+        endSearch(search, board, isOpening, depth, score, nodes);
+        slow.end();
+        if (timeLimitMs > 0 && elapsedNanos > timeLimitMs * 1_000_000L && slow.shouldCommit()) {
+            slow.board = board.getPosition();
+            slow.phase = phase(isOpening);
+            slow.depth = depth;
+            slow.timeLimit = timeLimitMs;
+            slow.commit();
+        }
+    }
+}
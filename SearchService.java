@@ -0,0 +1,436 @@
+package morris;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// Asynchronous, cancellable access to the Alpha-Beta search.
+// Every submitted request runs an iterative-deepening search on its own
+// AlphaBetaAlgorithm and returns a CompletableFuture. Progress is reported
+// after each completed depth, and cancelling the future stops the search at
+// the next node. After a search the service can ponder: keep searching the
+// position expected after the opponent's reply until the next request shows
+// whether the guess was right. Requests run on virtual threads when the JVM has them
+// (Java 21+) and on a pool with one platform thread per core otherwise, so
+// queued requests never hold a thread of their own. With telemetry on, every
+// completed depth of every search writes one SearchTelemetry line.
+public class SearchService implements AutoCloseable {
+
+    public static class Request {
+        private final Board board;
+        private final boolean isOpening;
+        private final boolean whiteToMove;
+        private final int maxDepth;
+        private final long timeLimitMs; // 0 = no time limit
+        private final boolean improved;
+        private final long hashMb;      // 0 = no transposition table
+
+        public Request(Board board, boolean isOpening, boolean whiteToMove, int maxDepth, long timeLimitMs) {
+            this(board, isOpening, whiteToMove, maxDepth, timeLimitMs, false, 4);
+        }
+
+        public Request(Board board, boolean isOpening, boolean whiteToMove, int maxDepth, long timeLimitMs,
+                boolean improved, long hashMb) {
+            if (maxDepth < 1) {
+                throw new IllegalArgumentException("Depth must be a positive integer");
+            }
+            this.board = board;
+            this.isOpening = isOpening;
+            this.whiteToMove = whiteToMove;
+            this.maxDepth = maxDepth;
+            this.timeLimitMs = timeLimitMs;
+            this.improved = improved;
+            this.hashMb = hashMb;
+        }
+
+        public Board getBoard() { return board; }
+        public boolean isOpening() { return isOpening; }
+        public boolean isWhiteToMove() { return whiteToMove; }
+        public int getMaxDepth() { return maxDepth; }
+        public long getTimeLimitMs() { return timeLimitMs; }
+        public boolean isImproved() { return improved; }
+        public long getHashMb() { return hashMb; }
+
+        // Same search apart from the time limit
+        boolean sameSearch(Request other) {
+            return board.getPosition().equals(other.board.getPosition()) && isOpening == other.isOpening
+                    && whiteToMove == other.whiteToMove && maxDepth == other.maxDepth
+                    && improved == other.improved && hashMb == other.hashMb;
+        }
+    }
+
+    // Best move found at a completed depth; board and score are from the side to move's view
+    public static class Result {
+        private final Board bestBoard;
+        private final int evaluation;
+        private final int depth;
+        private final long nodes;
+        private final long elapsedMs;
+        private final Board expectedReply; // position after the opponent's expected reply, or null
+
+        public Result(Board bestBoard, int evaluation, int depth, long nodes, long elapsedMs) {
+            this(bestBoard, evaluation, depth, nodes, elapsedMs, null);
+        }
+
+        public Result(Board bestBoard, int evaluation, int depth, long nodes, long elapsedMs, Board expectedReply) {
+            this.bestBoard = bestBoard;
+            this.evaluation = evaluation;
+            this.depth = depth;
+            this.nodes = nodes;
+            this.elapsedMs = elapsedMs;
+            this.expectedReply = expectedReply;
+        }
+
+        public Board getBestBoard() { return bestBoard; }
+        public int getEvaluation() { return evaluation; }
+        public int getDepth() { return depth; }
+        public long getNodes() { return nodes; }
+        public long getElapsedMs() { return elapsedMs; }
+        public Board getExpectedReply() { return expectedReply; }
+
+        @Override
+        public String toString() {
+            return "depth " + depth + ": " + bestBoard.getPosition() + " estimate " + evaluation
+                    + " (" + nodes + " nodes, " + elapsedMs + " ms)";
+        }
+    }
+
+    // Search started on a predicted position before it was requested. A request
+    // for the same search takes it over (ponder hit): the tree built so far and the
+    // hash table are kept, and its time limit counts from the hit. Any other
+    // request makes the caller cancel it (ponder miss) and the work is dropped.
+    public static class Ponder {
+        private final Request request;
+        private final AlphaBetaAlgorithm alphaBeta;
+        private final CompletableFuture<Result> future;
+
+        private Ponder(Request request, AlphaBetaAlgorithm alphaBeta, CompletableFuture<Result> future) {
+            this.request = request;
+            this.alphaBeta = alphaBeta;
+            this.future = future;
+        }
+
+        public Request getRequest() { return request; }
+
+        public boolean matches(Request actual) {
+            return request.sameSearch(actual);
+        }
+
+        // Ponder hit: the actual request's time limit starts now
+        public CompletableFuture<Result> hit(Request actual) {
+            if (actual.getTimeLimitMs() > 0) {
+                alphaBeta.setDeadline(System.nanoTime() + actual.getTimeLimitMs() * 1_000_000L);
+            }
+            return future;
+        }
+
+        // Ponder miss: stop the search and discard it
+        public void miss() {
+            future.cancel(true);
+        }
+    }
+
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private volatile PrintStream telemetryOut = null;
+
+    // Transposition tables are taken when a search starts running and given back when
+    // it ends, so queued requests hold no direct memory. At most one table per core
+    // plus one for a ponder search exists; a search that finds none free waits, and
+    // a returned table is cleared and reused by the next request of its size.
+    private final int maxTables;
+    private final Semaphore tablePermits;
+    private final Map<Long, Deque<TranspositionTable>> freeTables = new HashMap<>();
+    private int liveTables = 0; // free and in use, guarded by freeTables
+
+    public SearchService() {
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual
+                : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.maxTables = Runtime.getRuntime().availableProcessors() + 1;
+        this.tablePermits = new Semaphore(maxTables);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() is looked up reflectively so the
+    // engine still compiles and runs on Java 17; null when not available
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    // Searches submitted from now on write per-depth telemetry to out (null = off).
+    // Each search gets its own recorder; println keeps concurrent lines whole.
+    public void setTelemetry(PrintStream out) {
+        this.telemetryOut = out;
+    }
+
+    public CompletableFuture<Result> submit(Request request) {
+        return submit(request, null);
+    }
+
+    // progress (may be null) is called on the search thread after every completed depth
+    public CompletableFuture<Result> submit(Request request, Consumer<Result> progress) {
+        return start(request, newSearch(request, "service"), false, progress);
+    }
+
+    // Start pondering on the position after the expected reply of a finished search;
+    // null when the search did not predict one. The ponder search has no time limit
+    // until it is hit.
+    public Ponder ponder(Request previous, Result result) {
+        if (result.getExpectedReply() == null) {
+            return null;
+        }
+        Request predicted = new Request(result.getExpectedReply(), previous.isOpening(), !previous.isWhiteToMove(),
+                previous.getMaxDepth(), previous.getTimeLimitMs(), previous.isImproved(), previous.getHashMb());
+        AlphaBetaAlgorithm alphaBeta = newSearch(predicted, "ponder");
+        return new Ponder(predicted, alphaBeta, start(predicted, alphaBeta, true, null));
+    }
+
+    private CompletableFuture<Result> start(Request request, AlphaBetaAlgorithm alphaBeta, boolean pondering,
+            Consumer<Result> progress) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        AtomicBoolean stop = new AtomicBoolean(false);
+        alphaBeta.setStopFlag(stop);
+        future.whenComplete((result, error) -> stop.set(true)); // cancel() stops the search
+
+        executor.execute(() -> {
+            if (future.isDone()) {
+                return; // cancelled while queued
+            }
+            try {
+                future.complete(run(request, alphaBeta, pondering, stop, progress));
+            } catch (SearchCancelledException e) {
+                future.cancel(false);
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private AlphaBetaAlgorithm newSearch(Request request, String searcher) {
+        MoveGenerator generator = request.isOpening() ? new OpeningMoveGenerator() : new MidgameMoveGenerator();
+        AlphaBetaAlgorithm alphaBeta = new AlphaBetaAlgorithm(generator, request.isOpening(), request.isImproved());
+        PrintStream out = telemetryOut;
+        if (out != null) {
+            alphaBeta.setTelemetry(new SearchTelemetry(out, searcher));
+        }
+        return alphaBeta;
+    }
+
+    private Result run(Request request, AlphaBetaAlgorithm alphaBeta, boolean pondering, AtomicBoolean stop,
+            Consumer<Result> progress) {
+        TranspositionTable table = request.getHashMb() > 0 ? takeTable(request.getHashMb(), stop) : null;
+        try {
+            alphaBeta.setTranspositionTable(table);
+            return search(request, alphaBeta, pondering, stop, progress);
+        } finally {
+            alphaBeta.setTranspositionTable(null);
+            if (table != null) {
+                giveBackTable(request.getHashMb(), table);
+            }
+        }
+    }
+
+    private TranspositionTable takeTable(long sizeMb, AtomicBoolean stop) {
+        try {
+            while (!tablePermits.tryAcquire(10, TimeUnit.MILLISECONDS)) {
+                if (stop.get()) {
+                    throw new SearchCancelledException(); // cancelled while waiting for a table
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SearchCancelledException();
+        }
+        TranspositionTable table = null;
+        synchronized (freeTables) {
+            Deque<TranspositionTable> free = freeTables.get(sizeMb);
+            if (free != null && !free.isEmpty()) {
+                table = free.pop();
+            } else if (liveTables == maxTables) {
+                // Drop a free table of another size to make room
+                for (Deque<TranspositionTable> other : freeTables.values()) {
+                    if (!other.isEmpty()) {
+                        other.pop();
+                        liveTables--;
+                        break;
+                    }
+                }
+            }
+            if (table == null) {
+                liveTables++;
+            }
+        }
+        if (table != null) {
+            table.clear();
+            return table;
+        }
+        try {
+            return new TranspositionTable(sizeMb);
+        } catch (RuntimeException | Error e) {
+            synchronized (freeTables) {
+                liveTables--;
+            }
+            tablePermits.release();
+            throw e;
+        }
+    }
+
+    // Tables currently allocated, free or in use
+    public int getTableCount() {
+        synchronized (freeTables) {
+            return liveTables;
+        }
+    }
+
+    private void giveBackTable(long sizeMb, TranspositionTable table) {
+        synchronized (freeTables) {
+            freeTables.computeIfAbsent(sizeMb, size -> new ArrayDeque<>()).push(table);
+        }
+        tablePermits.release();
+    }
+
+    private static Result search(Request request, AlphaBetaAlgorithm alphaBeta, boolean pondering, AtomicBoolean stop,
+            Consumer<Result> progress) {
+        SearchEvents.Search searchEvent = new SearchEvents.Search();
+        SearchEvents.SlowMove slowEvent = new SearchEvents.SlowMove();
+        searchEvent.begin();
+        slowEvent.begin();
+        long start = System.nanoTime();
+        if (request.getTimeLimitMs() > 0 && !pondering) {
+            alphaBeta.setDeadline(start + request.getTimeLimitMs() * 1_000_000L);
+        }
+
+        // Board flipping: the search always plays White
+        Board board = request.isWhiteToMove() ? request.getBoard() : request.getBoard().flipBoard();
+
+        Result best = null;
+        EngineMetrics.get().searchStarted(alphaBeta);
+        try {
+            for (int depth = 1; depth <= request.getMaxDepth(); depth++) {
+                AlphaBetaAlgorithm.EvaluationResult result;
+                try {
+                    result = alphaBeta.search(board, depth, true);
+                } catch (SearchCancelledException e) {
+                    if (stop.get() || best == null) {
+                        throw e; // cancelled, or out of time before depth 1 finished
+                    }
+                    break; // out of time: keep the last completed depth
+                }
+
+                Board bestBoard = result.getBestBoard();
+                Board reply = expectedReply(alphaBeta, request, bestBoard);
+                if (!request.isWhiteToMove()) {
+                    bestBoard = bestBoard.flipBoard();
+                    reply = reply == null ? null : reply.flipBoard();
+                }
+                int evaluation = request.isWhiteToMove() ? result.getEvaluation() : -result.getEvaluation();
+                best = new Result(bestBoard, evaluation, depth, alphaBeta.getNodes(),
+                        (System.nanoTime() - start) / 1_000_000, reply);
+                if (progress != null) {
+                    progress.accept(best);
+                }
+            }
+        } finally {
+            EngineMetrics.get().searchFinished(alphaBeta, request.isOpening(), best != null ? best.getDepth() : 0);
+        }
+        SearchEvents.endMove(searchEvent, slowEvent, request.getBoard(), request.isOpening(), best.getDepth(),
+                best.getEvaluation(), best.getNodes(), request.getTimeLimitMs(), System.nanoTime() - start);
+        return best;
+    }
+
+    // Second move of the principal variation; when a hash cutoff cut the line short,
+    // the best move stored for the position after our move
+    private static Board expectedReply(AlphaBetaAlgorithm alphaBeta, Request request, Board bestBoard) {
+        List<Board> line = alphaBeta.getPrincipalVariation();
+        if (line.size() > 1) {
+            return line.get(1);
+        }
+        TranspositionTable table = alphaBeta.getTranspositionTable();
+        if (table == null || !table.probe(TranspositionTable.key(bestBoard, false))) {
+            return null;
+        }
+        MoveGenerator generator = request.isOpening() ? new OpeningMoveGenerator() : new MidgameMoveGenerator();
+        List<Board> replies = generator.generateMoves(bestBoard, false);
+        int move = table.getProbedMove();
+        return move < replies.size() ? replies.get(move) : null;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Testing SearchService ===");
+
+        try (SearchService service = new SearchService()) {
+            System.out.println("Virtual threads: " + service.usesVirtualThreads());
+
+            Board board = new Board("WxxxxxxWWxWWxBBBBxxxx");
+            Result result = service.submit(new Request(board, false, true, 6, 0),
+                    progress -> System.out.println("  " + progress)).get();
+            System.out.println("Best move: " + result.getBestBoard().getPosition() + " estimate " + result.getEvaluation());
+
+            // Black to move through board flipping
+            Result black = service.submit(new Request(board, false, false, 5, 0)).get();
+            System.out.println("Black best move: " + black.getBestBoard().getPosition() + " estimate " + black.getEvaluation());
+
+            // Time limit keeps the last completed depth
+            Result timed = service.submit(new Request(board, false, true, 30, 200)).get();
+            System.out.println("Time-limited search reached depth " + timed.getDepth());
+
+            // Pondering: search the expected reply, then request it (hit) or something else (miss)
+            Request request = new Request(board, false, true, 7, 100);
+            Result first = service.submit(request).get();
+            Ponder ponder = service.ponder(request, first);
+            if (ponder != null) {
+                Thread.sleep(100); // opponent thinking
+                Request next = new Request(first.getExpectedReply(), false, false, 7, 100);
+                System.out.println("Ponder hit: " + ponder.matches(next) + ", " + ponder.hit(next).get());
+                Ponder missed = service.ponder(next, service.submit(next).get());
+                if (missed != null) {
+                    missed.miss();
+                    System.out.println("Ponder miss cancelled: " + missed.future.isCancelled());
+                }
+            }
+
+            // A burst of queued requests shares the pooled tables instead of holding one each
+            List<CompletableFuture<Result>> burst = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                burst.add(service.submit(new Request(board, false, true, 3, 0)));
+            }
+            CompletableFuture.allOf(burst.toArray(new CompletableFuture<?>[0])).get();
+            System.out.println("Tables for 50 requests: " + service.getTableCount() + " (at most " + service.maxTables + ")");
+
+            // Telemetry: one line per completed depth of the iterative deepening
+            service.setTelemetry(System.out);
+            service.submit(new Request(board, false, true, 5, 0)).get();
+            service.setTelemetry(null);
+
+            // Cancellation stops a running search
+            CompletableFuture<Result> endless = service.submit(new Request(board, false, true, 30, 0, false, 0));
+            Thread.sleep(100);
+            endless.cancel(true);
+            System.out.println("Cancelled: " + endless.isCancelled());
+        }
+
+        System.out.println("=== SearchService tests completed! ===");
+    }
+}
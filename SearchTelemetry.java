@@ -0,0 +1,89 @@
+package morris;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+// Per-iteration search statistics, written as one JSON object per line:
+// nodes, leaf evaluations, effective branching factor, first-move cut-off
+// rate, hash hit and store rates and elapsed time. A searcher without
+// telemetry only pays a null check at its cut-offs; everything else is read
+// from counters the search keeps anyway. Inside SearchService every completed
+// depth of the iterative deepening gives one line.
+public class SearchTelemetry {
+    private final PrintStream out;
+    private final String searcher;
+
+    // Updated by the search at every cut-off
+    private long cutoffs;
+    private long firstMoveCutoffs;
+
+    // Counters at the start of the current iteration
+    private long startNanos;
+    private long startNodes;
+    private long startEvaluations;
+    private long startProbes;
+    private long startHits;
+    private long startStores;
+
+    // Previous iteration, for the branching factor
+    private int previousDepth = -1;
+    private long previousNodes = 0;
+
+    public SearchTelemetry(PrintStream out, String searcher) {
+        this.out = out;
+        this.searcher = searcher;
+    }
+
+    void cutoff(boolean firstMove) {
+        cutoffs++;
+        if (firstMove) {
+            firstMoveCutoffs++;
+        }
+    }
+
+    void begin(long nodes, long evaluations, TranspositionTable table) {
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        startNodes = nodes;
+        startEvaluations = evaluations;
+        startProbes = table != null ? table.getProbes() : 0;
+        startHits = table != null ? table.getHits() : 0;
+        startStores = table != null ? table.getStores() : 0;
+        startNanos = System.nanoTime();
+    }
+
+    // nodes and evaluations are the searcher's own counters, so searches running
+    // side by side do not mix their numbers
+    void end(Board root, int depth, int score, long nodes, long evaluations, TranspositionTable table) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long iterationNodes = nodes - startNodes;
+        long probes = table != null ? table.getProbes() - startProbes : 0;
+        long hits = table != null ? table.getHits() - startHits : 0;
+        long stores = table != null ? table.getStores() - startStores : 0;
+
+        // Ratio to the previous depth when iterating, otherwise the depth-th root of the tree size
+        double branching = previousDepth == depth - 1 && previousNodes > 0
+                ? (double) iterationNodes / previousNodes
+                : Math.pow(iterationNodes, 1.0 / Math.max(1, depth));
+        previousDepth = depth;
+        previousNodes = iterationNodes;
+
+        out.println("{\"searcher\":\"" + searcher + "\""
+                + ",\"board\":\"" + root.getPosition() + "\""
+                + ",\"depth\":" + depth
+                + ",\"score\":" + score
+                + ",\"nodes\":" + iterationNodes
+                + ",\"evaluations\":" + (evaluations - startEvaluations)
+                + ",\"branchingFactor\":" + format(branching)
+                + ",\"cutoffs\":" + cutoffs
+                + ",\"firstMoveCutoffRate\":" + format(cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs)
+                + ",\"hashProbes\":" + probes
+                + ",\"hashHitRate\":" + format(probes == 0 ? 0 : (double) hits / probes)
+                + ",\"hashStoreRate\":" + format(iterationNodes == 0 ? 0 : (double) stores / iterationNodes)
+                + ",\"elapsedMs\":" + format(elapsedNanos / 1e6) + "}");
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+}
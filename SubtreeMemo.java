@@ -0,0 +1,69 @@
+package morris;
+
+// Exact results of full minimax subtrees, keyed by position, side to move and
+// remaining depth. Without pruning a subtree's value and its number of leaf
+// evaluations depend only on that key, so a transposed subtree can be answered
+// from here and still be counted as if it had been searched again.
+// Buckets of two slots: one keeps the deeper subtree, the other always takes
+// the newest, so memory stays fixed at the requested size.
+class SubtreeMemo {
+    private static final int ENTRY_BYTES = 8 + 4 + 8;
+
+    private final long[] keys;   // 0 = empty (real keys always have depth >= 1)
+    private final int[] scores;
+    private final long[] counts; // leaf evaluations in the subtree
+    private final int mask;
+
+    // Fields of the last successful probe
+    private int probedScore;
+    private long probedCount;
+
+    SubtreeMemo(long sizeMb) {
+        if (sizeMb < 1) {
+            throw new IllegalArgumentException("Memo size must be at least 1 MB");
+        }
+        long entries = Math.min(1L << 30, Long.highestOneBit(sizeMb * 1024 * 1024 / ENTRY_BYTES));
+        this.keys = new long[(int) entries];
+        this.scores = new int[(int) entries];
+        this.counts = new long[(int) entries];
+        this.mask = (int) entries - 2; // even index: first slot of a bucket
+    }
+
+    static long key(Board board, int depth, boolean isMaximizing) {
+        return TranspositionTable.key(board, isMaximizing) | ((long) depth << 43);
+    }
+
+    boolean probe(long key) {
+        int bucket = indexOf(key);
+        for (int i = bucket; i < bucket + 2; i++) {
+            if (keys[i] == key) {
+                probedScore = scores[i];
+                probedCount = counts[i];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getProbedScore() { return probedScore; }
+    long getProbedCount() { return probedCount; }
+
+    void store(long key, int score, long count) {
+        int bucket = indexOf(key);
+        int slot = bucket + 1;
+        if (keys[bucket] == 0 || keys[bucket] == key || depthOf(key) >= depthOf(keys[bucket])) {
+            slot = bucket;
+        }
+        keys[slot] = key;
+        scores[slot] = score;
+        counts[slot] = count;
+    }
+
+    private int indexOf(long key) {
+        return (int) (key * 0x9E3779B97F4A7C15L >>> 32) & mask;
+    }
+
+    private static int depthOf(long key) {
+        return (int) (key >>> 43);
+    }
+}
@@ -0,0 +1,172 @@
+package morris;
+
+import java.nio.ByteBuffer;
+
+// Off-heap transposition table for AlphaBetaAlgorithm.
+// Entries are 16 bytes packed into 64-byte buckets of 4, stored in direct
+// ByteBuffers of at most 1 GB each, so the Java heap stays flat whatever the
+// table size. Large tables need -XX:MaxDirectMemorySize to be raised.
+//
+// Entry layout:
+//   word 0: bits 0-42 key (position + side to move), 43-50 generation,
+//           51-57 depth, 58-59 bound (0 = empty slot)
+//   word 1: bits 0-31 score, 32-47 best move index in generator order
+public class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER = 2; // score is a lower bound (fail high)
+    public static final int UPPER = 3; // score is an upper bound (fail low)
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_BYTES = ENTRY_BYTES * BUCKET_ENTRIES;
+    private static final int CHUNK_BUCKET_BITS = 24; // 2^24 buckets * 64 bytes = 1 GB per buffer
+    private static final long KEY_MASK = (1L << 43) - 1;
+    public static final long POSITION_MASK = (1L << 42) - 1; // key bits without the side to move
+
+    private final ByteBuffer[] chunks;
+    private final long bucketMask;
+    private int generation = 0;
+
+    // Statistics
+    private long probes = 0;
+    private long hits = 0;
+    private long stores = 0;
+
+    // Fields of the last successful probe (avoids a result object per probe)
+    private int probedDepth;
+    private int probedBound;
+    private int probedScore;
+    private int probedMove;
+
+    public TranspositionTable(long sizeMb) {
+        if (sizeMb < 1) {
+            throw new IllegalArgumentException("Hash size must be at least 1 MB");
+        }
+        long buckets = Long.highestOneBit(sizeMb * 1024 * 1024 / BUCKET_BYTES);
+        this.bucketMask = buckets - 1;
+
+        long chunkBuckets = 1L << CHUNK_BUCKET_BITS;
+        int chunkCount = (int) Math.max(1, buckets / chunkBuckets);
+        this.chunks = new ByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            chunks[i] = ByteBuffer.allocateDirect((int) (Math.min(buckets, chunkBuckets) * BUCKET_BYTES));
+        }
+    }
+
+    public static long key(Board board, boolean isMaximizing) {
+        return board.hashKey() | (isMaximizing ? 1L << 42 : 0);
+    }
+
+    // Age entries between moves so that stale results are replaced first
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public boolean probe(long key) {
+        probes++;
+        long bucket = bucketOf(key);
+        ByteBuffer chunk = chunks[(int) (bucket >>> CHUNK_BUCKET_BITS)];
+        int base = (int) (bucket & ((1L << CHUNK_BUCKET_BITS) - 1)) * BUCKET_BYTES;
+
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            int offset = base + i * ENTRY_BYTES;
+            long word0 = chunk.getLong(offset);
+            if (bound(word0) != 0 && (word0 & KEY_MASK) == key) {
+                long word1 = chunk.getLong(offset + 8);
+                probedDepth = (int) (word0 >>> 51) & 0x7F;
+                probedBound = bound(word0);
+                probedScore = (int) word1;
+                probedMove = (int) (word1 >>> 32) & 0xFFFF;
+                hits++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getProbedDepth() { return probedDepth; }
+    public int getProbedBound() { return probedBound; }
+    public int getProbedScore() { return probedScore; }
+    public int getProbedMove() { return probedMove; }
+
+    // Same key: overwrite. Otherwise take an empty slot, or replace the entry
+    // with the lowest depth, where every generation of age costs 8 plies.
+    public void store(long key, int depth, int bound, int score, int move) {
+        stores++;
+        long bucket = bucketOf(key);
+        ByteBuffer chunk = chunks[(int) (bucket >>> CHUNK_BUCKET_BITS)];
+        int base = (int) (bucket & ((1L << CHUNK_BUCKET_BITS) - 1)) * BUCKET_BYTES;
+
+        int replace = base;
+        int lowestPriority = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            int offset = base + i * ENTRY_BYTES;
+            long word0 = chunk.getLong(offset);
+            if (bound(word0) == 0 || (word0 & KEY_MASK) == key) {
+                replace = offset;
+                break;
+            }
+            int age = (generation - (int) (word0 >>> 43)) & 0xFF;
+            int priority = ((int) (word0 >>> 51) & 0x7F) - 8 * age;
+            if (priority < lowestPriority) {
+                lowestPriority = priority;
+                replace = offset;
+            }
+        }
+
+        long word0 = key | ((long) generation << 43) | ((long) Math.min(depth, 0x7F) << 51) | ((long) bound << 58);
+        long word1 = (score & 0xFFFFFFFFL) | ((long) (move & 0xFFFF) << 32);
+        chunk.putLong(replace, word0);
+        chunk.putLong(replace + 8, word1);
+    }
+
+    public void clear() {
+        for (ByteBuffer chunk : chunks) {
+            for (int offset = 0; offset < chunk.capacity(); offset += 8) {
+                chunk.putLong(offset, 0L);
+            }
+        }
+        generation = 0;
+        probes = 0;
+        hits = 0;
+        stores = 0;
+    }
+
+    public long getProbes() { return probes; }
+    public long getHits() { return hits; }
+    public long getStores() { return stores; }
+
+    public double getHitRate() {
+        return probes == 0 ? 0.0 : (double) hits / probes;
+    }
+
+    public long sizeBytes() {
+        return (bucketMask + 1) * BUCKET_BYTES;
+    }
+
+    // Fraction of used slots, sampled over the first 1000 buckets
+    public double getFill() {
+        ByteBuffer chunk = chunks[0];
+        int buckets = (int) Math.min(1000, bucketMask + 1);
+        int used = 0;
+        for (int offset = 0; offset < buckets * BUCKET_BYTES; offset += ENTRY_BYTES) {
+            if (bound(chunk.getLong(offset)) != 0)
+                used++;
+        }
+        return (double) used / (buckets * BUCKET_ENTRIES);
+    }
+
+    private long bucketOf(long key) {
+        return (key * 0x9E3779B97F4A7C15L >>> 20) & bucketMask;
+    }
+
+    private static int bound(long word0) {
+        return (int) (word0 >>> 58) & 0x3;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TranspositionTable[%d MB, probes=%d, hitRate=%.1f%%, stores=%d, fill=%.1f%%]",
+                sizeBytes() >> 20, probes, getHitRate() * 100, stores, getFill() * 100);
+    }
+}